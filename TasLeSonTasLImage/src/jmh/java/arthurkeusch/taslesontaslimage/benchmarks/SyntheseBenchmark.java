@@ -0,0 +1,73 @@
+package arthurkeusch.taslesontaslimage.benchmarks;
+
+import arthurkeusch.taslesontaslimage.BibliothequeNative;
+import arthurkeusch.taslesontaslimage.CreationAudio;
+import arthurkeusch.taslesontaslimage.ImageMatrice;
+import arthurkeusch.taslesontaslimage.TraitementImage;
+import arthurkeusch.taslesontaslimage.TypeSynthese;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bancs d'essai de la synthèse audio. Seul le calcul des échantillons est mesuré : l'écriture sur la ligne
+ * audio bloque au rythme de la lecture et ne dit rien du coût de la synthèse. Le cache des sons est
+ * contourné en appelant directement {@link CreationAudio#genererSon(ImageMatrice)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SyntheseBenchmark {
+
+    /**
+     * Le moteur de synthèse mesuré.
+     */
+    @Param({"ADDITIVE", "FFT"})
+    public TypeSynthese typeSynthese;
+
+    /**
+     * Nom de l'image convertie en son, dans {@code src/main/images} : une image presque vide
+     * et une image chargée.
+     */
+    @Param({"trait_blanc_milieu.png", "emoji_shoked.jpg"})
+    public String image;
+
+    /**
+     * L'objet responsable de la création du son.
+     */
+    private CreationAudio creationAudio;
+
+    /**
+     * La matrice compressée de l'image.
+     */
+    private ImageMatrice matrice;
+
+    /**
+     * Charge la bibliothèque native et calcule la matrice compressée de l'image.
+     */
+    @Setup
+    public void preparer() {
+        BibliothequeNative.charger();
+        creationAudio = new CreationAudio(64, 64, 200, 3000, 44100, typeSynthese);
+        matrice = new TraitementImage().traitement(new File("src/main/images", image).getAbsolutePath());
+    }
+
+    @Benchmark
+    public byte[] genererSon() {
+        return creationAudio.genererSon(matrice);
+    }
+}
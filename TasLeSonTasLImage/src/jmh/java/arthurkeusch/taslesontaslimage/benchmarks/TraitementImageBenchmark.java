@@ -0,0 +1,78 @@
+package arthurkeusch.taslesontaslimage.benchmarks;
+
+import arthurkeusch.taslesontaslimage.BibliothequeNative;
+import arthurkeusch.taslesontaslimage.ImageMatrice;
+import arthurkeusch.taslesontaslimage.TraitementImage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bancs d'essai du traitement des images fournies dans {@code src/main/images} : conversion en niveaux
+ * de gris, compression d'une matrice en 64x64 et traitement complet d'un fichier.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TraitementImageBenchmark {
+
+    /**
+     * Nom de l'image traitée, dans {@code src/main/images}.
+     */
+    @Param({"R2D2.png", "simple_shapes_black_bg.png", "sad_emoji.png", "emoji_shoked.jpg"})
+    public String image;
+
+    /**
+     * Chemin absolu de l'image traitée.
+     */
+    private String chemin;
+
+    /**
+     * L'image en niveaux de gris et en pleine résolution, à compresser.
+     */
+    private ImageMatrice imageGris;
+
+    /**
+     * L'objet responsable du traitement des images.
+     */
+    private final TraitementImage traitementImage = new TraitementImage();
+
+    /**
+     * Charge la bibliothèque native et prépare l'image en niveaux de gris.
+     */
+    @Setup
+    public void preparer() {
+        BibliothequeNative.charger();
+        chemin = new File("src/main/images", image).getAbsolutePath();
+        imageGris = TraitementImage.convertirEnNiveauxDeGris(chemin);
+    }
+
+    @Benchmark
+    public ImageMatrice convertirEnNiveauxDeGris() {
+        return TraitementImage.convertirEnNiveauxDeGris(chemin);
+    }
+
+    @Benchmark
+    public ImageMatrice compresserEn64x64() {
+        return TraitementImage.compresserEn64x64(imageGris);
+    }
+
+    @Benchmark
+    public ImageMatrice traitement() {
+        return traitementImage.traitement(chemin);
+    }
+}
@@ -0,0 +1,83 @@
+package arthurkeusch.taslesontaslimage.benchmarks;
+
+import arthurkeusch.taslesontaslimage.BibliothequeNative;
+import arthurkeusch.taslesontaslimage.Echantillonnage;
+import arthurkeusch.taslesontaslimage.PipelineVideo;
+import arthurkeusch.taslesontaslimage.TraitementImage;
+import arthurkeusch.taslesontaslimage.TraitementVideo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bancs d'essai de l'extraction des images de {@code src/main/videos/mavideo.mp4} : parcours séquentiel
+ * avec compression de chaque image, puis pipeline parallèle complet (compression et image d'affichage).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TraitementVideoBenchmark {
+
+    /**
+     * Fréquence d'extraction des images (voir {@link Echantillonnage#lire(String)}).
+     */
+    @Param({"1/s", "natif"})
+    public String echantillonnage;
+
+    /**
+     * Chemin absolu de la vidéo.
+     */
+    private String chemin;
+
+    /**
+     * La fréquence d'extraction des images.
+     */
+    private Echantillonnage frequence;
+
+    /**
+     * Nombre d'échantillons de la vidéo.
+     */
+    private int nombre;
+
+    /**
+     * L'objet responsable du traitement vidéo.
+     */
+    private final TraitementVideo traitementVideo = new TraitementVideo();
+
+    /**
+     * Charge la bibliothèque native et compte les échantillons de la vidéo.
+     */
+    @Setup
+    public void preparer() {
+        BibliothequeNative.charger();
+        chemin = new File("src/main/videos/mavideo.mp4").getAbsolutePath();
+        frequence = Echantillonnage.lire(echantillonnage);
+        nombre = traitementVideo.obtenirNombreEchantillons(chemin, frequence);
+    }
+
+    @Benchmark
+    public void parcourirFrames(Blackhole blackhole) {
+        traitementVideo.parcourirFrames(chemin, frequence, 0, nombre,
+                (indice, frame) -> blackhole.consume(TraitementImage.compresserCouleur(frame)));
+    }
+
+    @Benchmark
+    public void pipeline(Blackhole blackhole) {
+        new PipelineVideo(traitementVideo, 16, 32).extraire(chemin, frequence, nombre, blackhole::consume);
+    }
+}
@@ -0,0 +1,38 @@
+package arthurkeusch.taslesontaslimage;
+
+import nu.pattern.OpenCV;
+import org.opencv.core.Core;
+
+/**
+ * Chargement unique de la bibliothèque native OpenCV, partagé par toute l'application.
+ */
+public final class BibliothequeNative {
+
+    /**
+     * Indique si la bibliothèque native a déjà été chargée.
+     */
+    private static volatile boolean chargee = false;
+
+    private BibliothequeNative() {
+    }
+
+    /**
+     * Charge la bibliothèque native OpenCV si ce n'est pas déjà fait. Les appels suivants ne coûtent rien.
+     * La bibliothèque est cherchée dans {@code java.library.path}, puis, à défaut, extraite de la dépendance
+     * {@code org.openpnp:opencv}, qui la fournit pour les plateformes courantes.
+     */
+    public static void charger() {
+        if (!chargee) {
+            synchronized (BibliothequeNative.class) {
+                if (!chargee) {
+                    try {
+                        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+                    } catch (UnsatisfiedLinkError e) {
+                        OpenCV.loadLocally();
+                    }
+                    chargee = true;
+                }
+            }
+        }
+    }
+}
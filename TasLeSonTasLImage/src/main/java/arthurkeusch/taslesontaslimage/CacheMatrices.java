@@ -0,0 +1,569 @@
+package arthurkeusch.taslesontaslimage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.function.Function;
+
+/**
+ * Cache persistant des matrices compressées, conservé d'une session à l'autre.
+ * <p>
+ * Le cache est formé de deux fichiers projetés en mémoire :
+ * <ul>
+ *     <li>un index, table de hachage à adressage ouvert : chaque emplacement contient l'empreinte du chemin
+ *     de l'image, sa taille, sa date de modification et la position de sa matrice dans le fichier de données ;</li>
+ *     <li>un fichier de données, où les matrices sont ajoutées à la suite, à raison de deux pixels par octet
+ *     lorsqu'elles ont au plus 16 niveaux de gris.</li>
+ * </ul>
+ * La recherche d'une image se fait donc en temps constant, sans lire le reste du cache. Une entrée dont
+ * la taille ou la date de modification ne correspond plus au fichier est ignorée, puis remplacée. Si les
+ * paramètres de compression ou la chaîne de traitement (voir {@link TraitementImage#EMPREINTE_CHAINE})
+ * changent, le cache est entièrement réinitialisé à l'ouverture.
+ * <p>
+ * Un cache ne peut être ouvert que par une seule instance à la fois : l'index est verrouillé
+ * ({@link FileChannel#tryLock()}) jusqu'à {@link #close()}, et une seconde ouverture échoue.
+ * <p>
+ * Le fichier de données n'est pas compacté : une matrice remplacée y reste jusqu'à la prochaine
+ * réinitialisation. Il est limité à 2 Go par sa projection en mémoire ; une fois cette taille atteinte,
+ * les nouvelles matrices sont calculées sans être ajoutées au cache.
+ */
+public class CacheMatrices implements Closeable {
+
+    /**
+     * Identifiant placé au début de l'index ("TSTI").
+     */
+    private static final int MAGIE = 0x54535449;
+
+    /**
+     * Version du format des fichiers du cache.
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * Taille (en octets) de l'en-tête de l'index.
+     */
+    private static final int TAILLE_EN_TETE = 48;
+
+    /**
+     * Taille (en octets) d'un emplacement de l'index.
+     */
+    private static final int TAILLE_EMPLACEMENT = 32;
+
+    /**
+     * Nombre d'emplacements d'un index neuf (puissance de deux).
+     */
+    private static final int EMPLACEMENTS_INITIAUX = 1024;
+
+    /**
+     * Taille minimale (en octets) de la projection du fichier de données.
+     */
+    private static final long PROJECTION_MINIMALE = 1L << 20;
+
+    /**
+     * Chemin de l'index.
+     */
+    private final Path cheminIndex;
+
+    /**
+     * Chemin du fichier de données.
+     */
+    private final Path cheminDonnees;
+
+    /**
+     * Nombre de lignes des matrices.
+     */
+    private final int hauteur;
+
+    /**
+     * Nombre de colonnes des matrices.
+     */
+    private final int largeur;
+
+    /**
+     * Nombre de niveaux de gris des matrices.
+     */
+    private final int niveaux;
+
+    /**
+     * Empreinte de la chaîne de traitement qui a produit les matrices.
+     */
+    private final long empreinteChaine;
+
+    /**
+     * Taille (en octets) d'une matrice dans le fichier de données.
+     */
+    private final int tailleMatrice;
+
+    /**
+     * Le fichier de l'index.
+     */
+    private final FileChannel canalIndex;
+
+    /**
+     * Le fichier de données.
+     */
+    private final FileChannel canalDonnees;
+
+    /**
+     * Le verrou exclusif de l'index, libéré à la fermeture des fichiers.
+     */
+    private final FileLock verrou;
+
+    /**
+     * Projection en mémoire de l'index, ou null une fois le cache fermé.
+     */
+    private MappedByteBuffer index;
+
+    /**
+     * Projection en mémoire du fichier de données, ou null une fois le cache fermé.
+     */
+    private MappedByteBuffer donnees;
+
+    /**
+     * Nombre d'emplacements de l'index.
+     */
+    private int nbEmplacements;
+
+    /**
+     * Nombre d'emplacements occupés.
+     */
+    private int nbEntrees;
+
+    /**
+     * Position de la fin des données utiles dans le fichier de données.
+     */
+    private long finDonnees;
+
+    /**
+     * Nombre de matrices trouvées dans le cache.
+     */
+    private long succes = 0;
+
+    /**
+     * Nombre de matrices absentes ou périmées.
+     */
+    private long echecs = 0;
+
+    /**
+     * Ouvre le cache des matrices d'un dossier d'images, rangé dans le dossier de cache de l'utilisateur
+     * ({@code ~/.cache/taslesontaslimage}), avec les paramètres de compression et l'empreinte de la chaîne
+     * de traitement de {@link TraitementImage}.
+     *
+     * @param dossierImages Le dossier d'images.
+     * @return Le cache du dossier.
+     * @throws IOException Si les fichiers du cache ne peuvent pas être ouverts ou créés, ou si le cache
+     *                     est déjà ouvert par une autre instance.
+     */
+    public static CacheMatrices ouvrir(File dossierImages) throws IOException {
+        Path dossierCache = Path.of(System.getProperty("user.home"), ".cache", "taslesontaslimage");
+        Files.createDirectories(dossierCache);
+        long empreinte = CacheSons.empreinte(dossierImages.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+        return new CacheMatrices(dossierCache.resolve("matrices-" + Long.toHexString(empreinte)),
+                TraitementImage.TAILLE_COMPRESSEE, TraitementImage.TAILLE_COMPRESSEE, TraitementImage.NIVEAUX_GRIS,
+                TraitementImage.EMPREINTE_CHAINE);
+    }
+
+    /**
+     * Ouvre ou crée un cache de matrices.
+     *
+     * @param base            Chemin des fichiers du cache, sans extension ({@code .index} et {@code .donnees}
+     *                        sont ajoutés).
+     * @param hauteur         Nombre de lignes des matrices.
+     * @param largeur         Nombre de colonnes des matrices.
+     * @param niveaux         Nombre de niveaux de gris des matrices (au plus 256).
+     * @param empreinteChaine Empreinte de la chaîne de traitement qui produit les matrices.
+     * @throws IOException              Si les fichiers du cache ne peuvent pas être ouverts ou créés, ou s'ils
+     *                                  sont déjà ouverts par une autre instance.
+     * @throws IllegalArgumentException Si les paramètres des matrices sont invalides.
+     */
+    public CacheMatrices(Path base, int hauteur, int largeur, int niveaux, long empreinteChaine) throws IOException {
+        if (hauteur <= 0 || largeur <= 0 || niveaux <= 1 || niveaux > 256) {
+            throw new IllegalArgumentException("Paramètres invalides : " + hauteur + "x" + largeur + ", " + niveaux + " niveaux");
+        }
+        this.cheminIndex = base.resolveSibling(base.getFileName() + ".index");
+        this.cheminDonnees = base.resolveSibling(base.getFileName() + ".donnees");
+        this.hauteur = hauteur;
+        this.largeur = largeur;
+        this.niveaux = niveaux;
+        this.empreinteChaine = empreinteChaine;
+        this.tailleMatrice = niveaux <= 16 ? (hauteur * largeur + 1) / 2 : hauteur * largeur;
+
+        this.canalIndex = FileChannel.open(cheminIndex,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            this.canalDonnees = FileChannel.open(cheminDonnees,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            canalIndex.close();
+            throw e;
+        }
+
+        try {
+            // Le verrou est pris avant toute lecture : une seconde instance ne doit ni lire un index en cours
+            // d'écriture, ni réinitialiser les fichiers de la première.
+            FileLock verrouIndex;
+            try {
+                verrouIndex = canalIndex.tryLock();
+            } catch (OverlappingFileLockException e) {
+                verrouIndex = null;
+            }
+            if (verrouIndex == null) {
+                throw new IOException("Cache des matrices déjà utilisé par une autre instance : " + cheminIndex);
+            }
+            this.verrou = verrouIndex;
+
+            if (!lireEnTete()) {
+                reinitialiser();
+            }
+            projeterDonnees(Math.max(PROJECTION_MINIMALE, finDonnees));
+        } catch (IOException | RuntimeException e) {
+            canalIndex.close();
+            canalDonnees.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Retourne la matrice d'une image depuis le cache, ou la calcule et l'ajoute au cache si elle est absente
+     * ou périmée.
+     *
+     * @param fichier Le fichier image.
+     * @param calcul  Le calcul de la matrice, appelé si elle n'est pas dans le cache.
+     * @return La matrice de l'image.
+     */
+    public ImageMatrice obtenir(File fichier, Function<File, ImageMatrice> calcul) {
+        BasicFileAttributes attributs;
+        try {
+            attributs = Files.readAttributes(fichier.toPath(), BasicFileAttributes.class);
+        } catch (IOException e) {
+            return calcul.apply(fichier);
+        }
+        long cle = cle(fichier);
+        long taille = attributs.size();
+        long date = attributs.lastModifiedTime().toMillis();
+
+        ImageMatrice matrice = lire(cle, taille, date);
+        if (matrice != null) {
+            return matrice;
+        }
+        matrice = calcul.apply(fichier);
+        ecrire(cle, taille, date, matrice);
+        return matrice;
+    }
+
+    /**
+     * Retourne le nombre de matrices trouvées dans le cache.
+     *
+     * @return Le nombre de succès.
+     */
+    public synchronized long getSucces() {
+        return succes;
+    }
+
+    /**
+     * Retourne le nombre de matrices absentes ou périmées.
+     *
+     * @return Le nombre d'échecs.
+     */
+    public synchronized long getEchecs() {
+        return echecs;
+    }
+
+    /**
+     * Retourne un résumé des statistiques du cache.
+     *
+     * @return Les succès, les échecs et le nombre d'entrées.
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("%d succès, %d échecs, %d matrices", succes, echecs, nbEntrees);
+    }
+
+    /**
+     * Enregistre le cache sur le disque et ferme ses fichiers.
+     *
+     * @throws IOException En cas d'erreur d'écriture.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!canalIndex.isOpen()) {
+            return;
+        }
+        index.force();
+        donnees.force();
+        index = null;
+        donnees = null;
+        verrou.release();
+        canalIndex.close();
+        canalDonnees.close();
+    }
+
+    /**
+     * Cherche la matrice d'une image dans l'index.
+     *
+     * @param cle    L'empreinte du chemin de l'image.
+     * @param taille La taille actuelle du fichier.
+     * @param date   La date de modification actuelle du fichier.
+     * @return La matrice, ou null si elle est absente, périmée ou si le cache est fermé.
+     */
+    private synchronized ImageMatrice lire(long cle, long taille, long date) {
+        if (index == null) {
+            return null;
+        }
+        int emplacement = chercher(cle);
+        int position = positionEmplacement(emplacement);
+        if (index.getLong(position) != cle
+                || index.getLong(position + 8) != taille
+                || index.getLong(position + 16) != date) {
+            echecs++;
+            return null;
+        }
+        succes++;
+        return decoder(index.getLong(position + 24));
+    }
+
+    /**
+     * Ajoute ou remplace la matrice d'une image.
+     *
+     * @param cle     L'empreinte du chemin de l'image.
+     * @param taille  La taille du fichier.
+     * @param date    La date de modification du fichier.
+     * @param matrice La matrice de l'image.
+     */
+    private synchronized void ecrire(long cle, long taille, long date, ImageMatrice matrice) {
+        if (index == null || matrice.getHauteur() != hauteur || matrice.getLargeur() != largeur) {
+            return;
+        }
+        try {
+            long positionDonnees = ajouterDonnees(matrice);
+
+            int emplacement = chercher(cle);
+            int position = positionEmplacement(emplacement);
+            if (index.getLong(position) == 0) {
+                if (4L * (nbEntrees + 1) > 3L * nbEmplacements) {
+                    agrandirIndex();
+                    position = positionEmplacement(chercher(cle));
+                }
+                nbEntrees++;
+            }
+            index.putLong(position + 8, taille);
+            index.putLong(position + 16, date);
+            index.putLong(position + 24, positionDonnees);
+            index.putLong(position, cle);
+            ecrireEnTete();
+        } catch (IOException e) {
+            System.out.println("Impossible d'écrire dans le cache des matrices : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Cherche l'emplacement d'une clé, ou le premier emplacement libre où l'insérer.
+     *
+     * @param cle La clé recherchée.
+     * @return L'indice de l'emplacement.
+     */
+    private int chercher(long cle) {
+        int masque = nbEmplacements - 1;
+        int emplacement = (int) (cle ^ (cle >>> 32)) & masque;
+        while (true) {
+            long occupant = index.getLong(positionEmplacement(emplacement));
+            if (occupant == cle || occupant == 0) {
+                return emplacement;
+            }
+            emplacement = (emplacement + 1) & masque;
+        }
+    }
+
+    /**
+     * Double le nombre d'emplacements de l'index et y replace toutes les entrées.
+     *
+     * @throws IOException En cas d'erreur d'écriture.
+     */
+    private void agrandirIndex() throws IOException {
+        long[] entrees = new long[4 * nbEntrees];
+        int n = 0;
+        for (int emplacement = 0; emplacement < nbEmplacements; emplacement++) {
+            int position = positionEmplacement(emplacement);
+            if (index.getLong(position) != 0) {
+                for (int champ = 0; champ < 4; champ++) {
+                    entrees[n++] = index.getLong(position + 8 * champ);
+                }
+            }
+        }
+
+        projeterIndex(2 * nbEmplacements);
+        for (int i = 0; i < n; i += 4) {
+            int position = positionEmplacement(chercher(entrees[i]));
+            for (int champ = 0; champ < 4; champ++) {
+                index.putLong(position + 8 * champ, entrees[i + champ]);
+            }
+        }
+        ecrireEnTete();
+    }
+
+    /**
+     * Ajoute une matrice à la fin du fichier de données.
+     *
+     * @param matrice La matrice à ajouter.
+     * @return La position de la matrice dans le fichier de données.
+     * @throws IOException Si le fichier de données ne peut pas être agrandi.
+     */
+    private long ajouterDonnees(ImageMatrice matrice) throws IOException {
+        long position = finDonnees;
+        if (position + tailleMatrice > donnees.capacity()) {
+            projeterDonnees(2 * (position + tailleMatrice));
+        }
+
+        byte[] pixels = matrice.toByteArray();
+        if (niveaux <= 16) {
+            for (int i = 0; i < tailleMatrice; i++) {
+                int fort = pixels[2 * i] & 0x0F;
+                int faible = 2 * i + 1 < pixels.length ? pixels[2 * i + 1] & 0x0F : 0;
+                donnees.put((int) position + i, (byte) (fort << 4 | faible));
+            }
+        } else {
+            donnees.put((int) position, pixels);
+        }
+        finDonnees = position + tailleMatrice;
+        return position;
+    }
+
+    /**
+     * Lit une matrice dans le fichier de données.
+     *
+     * @param position La position de la matrice.
+     * @return La matrice lue.
+     */
+    private ImageMatrice decoder(long position) {
+        byte[] pixels = new byte[hauteur * largeur];
+        if (niveaux <= 16) {
+            for (int i = 0; i < tailleMatrice; i++) {
+                int octet = donnees.get((int) position + i) & 0xFF;
+                pixels[2 * i] = (byte) (octet >>> 4);
+                if (2 * i + 1 < pixels.length) {
+                    pixels[2 * i + 1] = (byte) (octet & 0x0F);
+                }
+            }
+        } else {
+            donnees.get((int) position, pixels);
+        }
+        return ImageMatrice.envelopper(hauteur, largeur, pixels);
+    }
+
+    /**
+     * Lit l'en-tête de l'index et vérifie qu'il correspond aux paramètres du cache.
+     *
+     * @return true si l'index existant est utilisable.
+     * @throws IOException En cas d'erreur de lecture.
+     */
+    private boolean lireEnTete() throws IOException {
+        if (canalIndex.size() < TAILLE_EN_TETE) {
+            return false;
+        }
+        index = canalIndex.map(FileChannel.MapMode.READ_WRITE, 0, canalIndex.size());
+        int emplacements = index.getInt(20);
+        boolean valide = index.getInt(0) == MAGIE
+                && index.getInt(4) == VERSION
+                && index.getInt(8) == hauteur
+                && index.getInt(12) == largeur
+                && index.getInt(16) == niveaux
+                && index.getLong(40) == empreinteChaine
+                && emplacements > 0 && Integer.bitCount(emplacements) == 1
+                && canalIndex.size() == TAILLE_EN_TETE + (long) emplacements * TAILLE_EMPLACEMENT
+                && index.getLong(32) <= canalDonnees.size();
+        if (valide) {
+            nbEmplacements = emplacements;
+            nbEntrees = index.getInt(24);
+            finDonnees = index.getLong(32);
+        }
+        return valide;
+    }
+
+    /**
+     * Remet le cache à zéro : index vide et fichier de données vide.
+     *
+     * @throws IOException En cas d'erreur d'écriture.
+     */
+    private void reinitialiser() throws IOException {
+        index = null;
+        canalIndex.truncate(0);
+        canalDonnees.truncate(0);
+        nbEntrees = 0;
+        finDonnees = 0;
+        projeterIndex(EMPLACEMENTS_INITIAUX);
+        ecrireEnTete();
+    }
+
+    /**
+     * Projette en mémoire un index vide du nombre d'emplacements indiqué.
+     *
+     * @param emplacements Le nombre d'emplacements.
+     * @throws IOException En cas d'erreur d'écriture.
+     */
+    private void projeterIndex(int emplacements) throws IOException {
+        long taille = TAILLE_EN_TETE + (long) emplacements * TAILLE_EMPLACEMENT;
+        index = canalIndex.map(FileChannel.MapMode.READ_WRITE, 0, taille);
+        for (int position = TAILLE_EN_TETE; position < taille; position += 8) {
+            index.putLong(position, 0);
+        }
+        nbEmplacements = emplacements;
+    }
+
+    /**
+     * Projette en mémoire le fichier de données, agrandi au besoin.
+     *
+     * @param taille La taille minimale (en octets) de la projection.
+     * @throws IOException Si la taille dépasse la limite d'une projection ou en cas d'erreur d'écriture.
+     */
+    private void projeterDonnees(long taille) throws IOException {
+        if (taille > Integer.MAX_VALUE) {
+            throw new IOException("Cache des matrices plein : " + cheminDonnees);
+        }
+        donnees = canalDonnees.map(FileChannel.MapMode.READ_WRITE, 0, taille);
+    }
+
+    /**
+     * Écrit l'en-tête de l'index.
+     */
+    private void ecrireEnTete() {
+        index.putInt(0, MAGIE);
+        index.putInt(4, VERSION);
+        index.putInt(8, hauteur);
+        index.putInt(12, largeur);
+        index.putInt(16, niveaux);
+        index.putInt(20, nbEmplacements);
+        index.putInt(24, nbEntrees);
+        index.putLong(32, finDonnees);
+        index.putLong(40, empreinteChaine);
+    }
+
+    /**
+     * Retourne la position d'un emplacement dans l'index.
+     *
+     * @param emplacement L'indice de l'emplacement.
+     * @return La position (en octets) de l'emplacement.
+     */
+    private static int positionEmplacement(int emplacement) {
+        return TAILLE_EN_TETE + emplacement * TAILLE_EMPLACEMENT;
+    }
+
+    /**
+     * Calcule la clé d'une image : l'empreinte de son chemin absolu, jamais nulle.
+     *
+     * @param fichier Le fichier image.
+     * @return La clé de l'image.
+     */
+    private static long cle(File fichier) {
+        long empreinte = CacheSons.empreinte(fichier.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+        return empreinte == 0 ? 1 : empreinte;
+    }
+}
@@ -0,0 +1,214 @@
+package arthurkeusch.taslesontaslimage;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Cache en mémoire des sons déjà calculés, indexé par le contenu de la matrice et par les paramètres
+ * de synthèse : deux images identiques, même lues depuis des fichiers différents, partagent la même entrée.
+ * <p>
+ * La taille du cache est bornée en octets ; lorsqu'elle est dépassée, les sons les moins récemment utilisés
+ * sont retirés en premier.
+ */
+public class CacheSons {
+
+    /**
+     * Paramètres qui déterminent le son produit pour une matrice donnée.
+     *
+     * @param numRows      Nombre de lignes dans la matrice sonore.
+     * @param numCols      Nombre de colonnes dans la matrice sonore.
+     * @param minFrequency Fréquence minimale (en Hz).
+     * @param maxFrequency Fréquence maximale (en Hz).
+     * @param sampleRate   Taux d'échantillonnage audio (en Hz).
+     * @param typeSynthese Le moteur de synthèse.
+     */
+    public record Parametres(int numRows, int numCols, double minFrequency, double maxFrequency, int sampleRate,
+                             TypeSynthese typeSynthese) {
+    }
+
+    /**
+     * Clé d'une entrée : l'empreinte de la matrice, ses pixels (pour écarter les collisions) et les paramètres.
+     *
+     * @param empreinte  Empreinte 64 bits des pixels.
+     * @param hauteur    Nombre de lignes de la matrice.
+     * @param largeur    Nombre de colonnes de la matrice.
+     * @param pixels     Copie des pixels de la matrice.
+     * @param parametres Les paramètres de synthèse.
+     */
+    private record Cle(long empreinte, int hauteur, int largeur, byte[] pixels, Parametres parametres) {
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Cle autre
+                    && empreinte == autre.empreinte
+                    && hauteur == autre.hauteur
+                    && largeur == autre.largeur
+                    && parametres.equals(autre.parametres)
+                    && Arrays.equals(pixels, autre.pixels);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(empreinte) * 31 + parametres.hashCode();
+        }
+    }
+
+    /**
+     * Taille maximale (en octets) des sons conservés.
+     */
+    private final long capacite;
+
+    /**
+     * Les sons conservés, du moins récemment utilisé au plus récemment utilisé.
+     */
+    private final LinkedHashMap<Cle, byte[]> sons = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Taille (en octets) des sons conservés.
+     */
+    private long taille = 0;
+
+    /**
+     * Nombre de sons trouvés dans le cache.
+     */
+    private long succes = 0;
+
+    /**
+     * Nombre de sons absents du cache, qui ont dû être calculés.
+     */
+    private long echecs = 0;
+
+    /**
+     * Constructeur du cache.
+     *
+     * @param capacite Taille maximale (en octets) des sons conservés.
+     * @throws IllegalArgumentException Si la capacité est négative.
+     */
+    public CacheSons(long capacite) {
+        if (capacite < 0) {
+            throw new IllegalArgumentException("Capacité invalide : " + capacite);
+        }
+        this.capacite = capacite;
+    }
+
+    /**
+     * Calcule l'empreinte 64 bits (FNV-1a) des pixels d'une matrice.
+     *
+     * @param pixels Les pixels rangés ligne par ligne.
+     * @return L'empreinte des pixels.
+     */
+    public static long empreinte(byte[] pixels) {
+        long h = 0xcbf29ce484222325L;
+        for (byte pixel : pixels) {
+            h ^= pixel & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * Retourne le son d'une matrice depuis le cache, ou le calcule et le conserve s'il est absent.
+     * Le tableau retourné est partagé : il ne doit pas être modifié.
+     *
+     * @param image      La matrice à sonoriser.
+     * @param parametres Les paramètres de synthèse utilisés par le calcul.
+     * @param calcul     Le calcul du son, appelé hors du verrou du cache si le son est absent.
+     * @return Le son de la matrice.
+     */
+    public byte[] obtenir(ImageMatrice image, Parametres parametres, Function<ImageMatrice, byte[]> calcul) {
+        byte[] pixels = image.toByteArray();
+        Cle cle = new Cle(empreinte(pixels), image.getHauteur(), image.getLargeur(), pixels, parametres);
+
+        synchronized (this) {
+            byte[] son = sons.get(cle);
+            if (son != null) {
+                succes++;
+                return son;
+            }
+            echecs++;
+        }
+
+        byte[] son = calcul.apply(image);
+        synchronized (this) {
+            byte[] precedent = sons.put(cle, son);
+            if (precedent != null) {
+                taille -= tailleEntree(cle, precedent);
+            }
+            taille += tailleEntree(cle, son);
+            retirerAnciens();
+        }
+        return son;
+    }
+
+    /**
+     * Vide le cache, sans remettre les compteurs à zéro.
+     */
+    public synchronized void vider() {
+        sons.clear();
+        taille = 0;
+    }
+
+    /**
+     * Retourne le nombre de sons trouvés dans le cache.
+     *
+     * @return Le nombre de succès.
+     */
+    public synchronized long getSucces() {
+        return succes;
+    }
+
+    /**
+     * Retourne le nombre de sons absents du cache, qui ont dû être calculés.
+     *
+     * @return Le nombre d'échecs.
+     */
+    public synchronized long getEchecs() {
+        return echecs;
+    }
+
+    /**
+     * Retourne la taille (en octets) des sons conservés.
+     *
+     * @return La taille du cache.
+     */
+    public synchronized long getTaille() {
+        return taille;
+    }
+
+    /**
+     * Retourne un résumé des statistiques du cache.
+     *
+     * @return Les succès, les échecs et l'occupation du cache.
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("%d succès, %d échecs, %d sons (%d Ko sur %d Ko)",
+                succes, echecs, sons.size(), taille / 1024, capacite / 1024);
+    }
+
+    /**
+     * Retire les sons les moins récemment utilisés jusqu'à respecter la capacité du cache.
+     */
+    private void retirerAnciens() {
+        Iterator<Map.Entry<Cle, byte[]>> entrees = sons.entrySet().iterator();
+        while (taille > capacite && entrees.hasNext()) {
+            Map.Entry<Cle, byte[]> entree = entrees.next();
+            taille -= tailleEntree(entree.getKey(), entree.getValue());
+            entrees.remove();
+        }
+    }
+
+    /**
+     * Estime la place occupée par une entrée : le son et la copie des pixels de la clé.
+     *
+     * @param cle La clé de l'entrée.
+     * @param son Le son de l'entrée.
+     * @return La taille (en octets) de l'entrée.
+     */
+    private static long tailleEntree(Cle cle, byte[] son) {
+        return (long) son.length + cle.pixels().length;
+    }
+}
@@ -0,0 +1,213 @@
+package arthurkeusch.taslesontaslimage;
+
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Chargement en arrière-plan des images à afficher.
+ * <p>
+ * Les images sont obtenues de la source hors du thread JavaFX et conservées dans un petit cache LRU,
+ * qui contient l'image courante et ses voisines. Seule la dernière image demandée est affichée :
+ * une image dont le chargement se termine après que l'utilisateur est passé à une autre est conservée
+ * dans le cache sans être affichée, et les chargements trop éloignés de l'image courante sont annulés.
+ */
+public class ChargeurAffichage {
+
+    /**
+     * Les images à afficher.
+     */
+    private final SourceLecture source;
+
+    /**
+     * Nombre maximal d'images conservées.
+     */
+    private final int capacite;
+
+    /**
+     * Nombre d'images chargées à l'avance au-delà de l'image demandée.
+     */
+    private final int rayon;
+
+    /**
+     * Le thread de chargement.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Les images chargées, de la moins récemment utilisée à la plus récemment utilisée.
+     */
+    private final LinkedHashMap<Integer, Image> pretes = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Les chargements en cours, par indice d'image.
+     */
+    private final Map<Integer, Future<?>> enCours = new HashMap<>();
+
+    /**
+     * Indice de la dernière image demandée.
+     */
+    private int demande = -1;
+
+    /**
+     * Action qui affiche la dernière image demandée, ou null si elle a déjà été affichée.
+     */
+    private Consumer<Image> destination;
+
+    /**
+     * Constructeur du chargeur.
+     *
+     * @param source   Les images à afficher.
+     * @param capacite Nombre maximal d'images conservées.
+     * @param rayon    Nombre d'images chargées à l'avance au-delà de l'image demandée.
+     * @throws IllegalArgumentException Si la capacité ne permet pas de conserver les images chargées à l'avance.
+     */
+    public ChargeurAffichage(SourceLecture source, int capacite, int rayon) {
+        if (rayon < 0 || capacite <= rayon + 1) {
+            throw new IllegalArgumentException("Capacité insuffisante : " + capacite + " images pour un rayon de " + rayon);
+        }
+        this.source = source;
+        this.capacite = capacite;
+        this.rayon = rayon;
+        this.executor = Executors.newSingleThreadExecutor(tache -> {
+            Thread thread = new Thread(tache, "chargement-affichage");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Demande l'affichage d'une image. L'action est appelée dans le thread JavaFX, immédiatement si l'image
+     * est déjà chargée, sinon à la fin de son chargement, sauf si une autre image a été demandée entre-temps.
+     * Les images suivantes sont chargées à l'avance.
+     *
+     * @param indice    L'indice de l'image à afficher.
+     * @param affichage L'action qui affiche l'image.
+     */
+    public synchronized void afficher(int indice, Consumer<Image> affichage) {
+        if (executor.isShutdown()) {
+            return;
+        }
+        demande = indice;
+        destination = affichage;
+
+        Image image = pretes.get(indice);
+        if (image != null) {
+            livrer(indice, image);
+        }
+
+        annulerHorsFenetre(indice);
+        charger(indice);
+        int taille = source.taille();
+        for (int k = 1; k <= rayon && taille > 0; k++) {
+            int suivant = indice + k;
+            if (suivant >= taille) {
+                if (!source.estComplete()) {
+                    break;
+                }
+                suivant %= taille;
+            }
+            charger(suivant);
+        }
+    }
+
+    /**
+     * Annule les chargements en cours et arrête le thread de chargement.
+     */
+    public synchronized void fermer() {
+        executor.shutdownNow();
+        enCours.clear();
+        pretes.clear();
+        destination = null;
+    }
+
+    /**
+     * Lance le chargement d'une image, si elle n'est ni chargée ni en cours de chargement.
+     *
+     * @param indice L'indice de l'image.
+     */
+    private void charger(int indice) {
+        if (pretes.containsKey(indice) || enCours.containsKey(indice)) {
+            return;
+        }
+        enCours.put(indice, executor.submit(() -> {
+            Image image = null;
+            try {
+                image = source.affichage(indice);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            } finally {
+                terminer(indice, image);
+            }
+        }));
+    }
+
+    /**
+     * Conserve une image chargée, et l'affiche si c'est la dernière image demandée.
+     *
+     * @param indice L'indice de l'image.
+     * @param image  L'image chargée, ou null si son chargement a échoué.
+     */
+    private synchronized void terminer(int indice, Image image) {
+        if (enCours.remove(indice) == null || image == null) {
+            return;
+        }
+        pretes.put(indice, image);
+        Iterator<Integer> anciennes = pretes.keySet().iterator();
+        while (pretes.size() > capacite && anciennes.hasNext()) {
+            anciennes.next();
+            anciennes.remove();
+        }
+        if (indice == demande) {
+            livrer(indice, image);
+        }
+    }
+
+    /**
+     * Transmet une image à l'action d'affichage, dans le thread JavaFX, si elle est toujours demandée.
+     *
+     * @param indice L'indice de l'image.
+     * @param image  L'image à afficher.
+     */
+    private void livrer(int indice, Image image) {
+        Consumer<Image> affichage = destination;
+        if (affichage == null) {
+            return;
+        }
+        destination = null;
+        Platform.runLater(() -> {
+            synchronized (this) {
+                if (indice != demande) {
+                    return;
+                }
+            }
+            affichage.accept(image);
+        });
+    }
+
+    /**
+     * Annule les chargements des images qui ne sont ni l'image demandée ni l'une des suivantes.
+     *
+     * @param indice L'indice de l'image demandée.
+     */
+    private void annulerHorsFenetre(int indice) {
+        int taille = Math.max(1, source.taille());
+        Iterator<Map.Entry<Integer, Future<?>>> entrees = enCours.entrySet().iterator();
+        while (entrees.hasNext()) {
+            Map.Entry<Integer, Future<?>> entree = entrees.next();
+            int distance = Math.floorMod(entree.getKey() - indice, taille);
+            if (distance > rayon) {
+                entree.getValue().cancel(false);
+                entrees.remove();
+            }
+        }
+    }
+}
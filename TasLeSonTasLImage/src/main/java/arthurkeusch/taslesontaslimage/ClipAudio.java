@@ -0,0 +1,165 @@
+package arthurkeusch.taslesontaslimage;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Son court (par exemple une notification) décodé une seule fois en mémoire, converti en mono
+ * et rééchantillonné au taux d'échantillonnage de la synthèse.
+ */
+public class ClipAudio {
+
+    /**
+     * Les clips déjà décodés, par chemin et taux d'échantillonnage.
+     */
+    private static final Map<String, ClipAudio> CLIPS = new ConcurrentHashMap<>();
+
+    /**
+     * Échantillons du clip, dans l'intervalle [-1, 1].
+     */
+    private final double[] echantillons;
+
+    /**
+     * Taux d'échantillonnage (en Hz) des échantillons.
+     */
+    private final int sampleRate;
+
+    /**
+     * Constructeur d'un clip à partir d'échantillons déjà décodés.
+     *
+     * @param echantillons Échantillons mono, dans l'intervalle [-1, 1].
+     * @param sampleRate   Taux d'échantillonnage (en Hz) des échantillons.
+     */
+    public ClipAudio(double[] echantillons, int sampleRate) {
+        this.echantillons = echantillons;
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Décode un fichier audio (WAV ou tout format PCM reconnu par javax.sound.sampled) et le rééchantillonne.
+     *
+     * @param filePath   Chemin vers le fichier audio.
+     * @param sampleRate Taux d'échantillonnage (en Hz) souhaité.
+     * @return Le clip décodé.
+     * @throws IOException                   Si le fichier ne peut pas être lu.
+     * @throws UnsupportedAudioFileException Si le format du fichier n'est pas pris en charge.
+     */
+    public static ClipAudio charger(String filePath, int sampleRate) throws IOException, UnsupportedAudioFileException {
+        try (AudioInputStream source = AudioSystem.getAudioInputStream(new File(filePath))) {
+            AudioFormat formatSource = source.getFormat();
+            AudioFormat format16Bits = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, formatSource.getSampleRate(),
+                    16, formatSource.getChannels(), 2 * formatSource.getChannels(), formatSource.getSampleRate(), false);
+
+            byte[] octets;
+            try (AudioInputStream pcm = AudioSystem.getAudioInputStream(format16Bits, source)) {
+                octets = pcm.readAllBytes();
+            }
+
+            int canaux = formatSource.getChannels();
+            int trames = octets.length / (2 * canaux);
+            double[] mono = new double[trames];
+            for (int t = 0; t < trames; t++) {
+                double somme = 0;
+                for (int c = 0; c < canaux; c++) {
+                    int i = 2 * (t * canaux + c);
+                    somme += (short) ((octets[i] & 0xFF) | (octets[i + 1] << 8)) / 32768.0;
+                }
+                mono[t] = somme / canaux;
+            }
+
+            return new ClipAudio(reechantillonner(mono, formatSource.getSampleRate(), sampleRate), sampleRate);
+        }
+    }
+
+    /**
+     * Retourne un clip depuis le cache, en le décodant au premier appel (voir {@link #charger(String, int)}).
+     *
+     * @param filePath   Chemin vers le fichier audio.
+     * @param sampleRate Taux d'échantillonnage (en Hz) souhaité.
+     * @return Le clip décodé, partagé : il ne doit pas être modifié.
+     * @throws IOException                   Si le fichier ne peut pas être lu.
+     * @throws UnsupportedAudioFileException Si le format du fichier n'est pas pris en charge.
+     */
+    public static ClipAudio obtenir(String filePath, int sampleRate) throws IOException, UnsupportedAudioFileException {
+        String cle = new File(filePath).getAbsolutePath() + "@" + sampleRate;
+        ClipAudio clip = CLIPS.get(cle);
+        if (clip == null) {
+            clip = charger(filePath, sampleRate);
+            ClipAudio existant = CLIPS.putIfAbsent(cle, clip);
+            if (existant != null) {
+                clip = existant;
+            }
+        }
+        return clip;
+    }
+
+    /**
+     * Rééchantillonne un signal par interpolation linéaire.
+     *
+     * @param signal     Le signal source.
+     * @param tauxSource Taux d'échantillonnage (en Hz) du signal source.
+     * @param tauxCible  Taux d'échantillonnage (en Hz) souhaité.
+     * @return Le signal rééchantillonné.
+     */
+    private static double[] reechantillonner(double[] signal, float tauxSource, int tauxCible) {
+        if (signal.length == 0 || tauxSource == tauxCible) {
+            return signal;
+        }
+        double rapport = tauxSource / tauxCible;
+        int longueur = (int) ((signal.length - 1) / rapport) + 1;
+        double[] resultat = new double[longueur];
+        for (int n = 0; n < longueur; n++) {
+            double position = n * rapport;
+            int i = (int) position;
+            double fraction = position - i;
+            double suivant = i + 1 < signal.length ? signal[i + 1] : signal[i];
+            resultat[n] = signal[i] + (suivant - signal[i]) * fraction;
+        }
+        return resultat;
+    }
+
+    /**
+     * Retourne le nombre d'échantillons du clip.
+     *
+     * @return La longueur du clip.
+     */
+    public int getLongueur() {
+        return echantillons.length;
+    }
+
+    /**
+     * Retourne le taux d'échantillonnage du clip.
+     *
+     * @return Le taux d'échantillonnage (en Hz).
+     */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Retourne l'échantillon à la position donnée.
+     *
+     * @param position La position de l'échantillon.
+     * @return L'échantillon, dans l'intervalle [-1, 1].
+     */
+    public double getEchantillon(int position) {
+        return echantillons[position];
+    }
+
+    /**
+     * Convertit le clip en échantillons signés sur 16 bits.
+     *
+     * @return Les échantillons sur 16 bits.
+     */
+    public short[] versPcm16() {
+        short[] pcm = new short[echantillons.length];
+        NoyauSynthese.convertirEn16Bits(echantillons, 0, pcm, 0, echantillons.length);
+        return pcm;
+    }
+}
@@ -0,0 +1,124 @@
+package arthurkeusch.taslesontaslimage;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * Conversions entre les matrices OpenCV ({@link Mat}) et les {@link ImageMatrice}.
+ * Chaque conversion transfère le tampon complet en un seul appel natif, au lieu d'un appel par pixel.
+ */
+public final class ConversionMat {
+
+    private ConversionMat() {
+    }
+
+    /**
+     * Copie une matrice OpenCV à un seul canal 8 bits dans une nouvelle ImageMatrice.
+     *
+     * @param matGris La matrice en niveaux de gris ({@link CvType#CV_8UC1}).
+     * @return Une instance d'ImageMatrice contenant les mêmes pixels.
+     * @throws IllegalArgumentException Si la matrice n'est pas de type {@link CvType#CV_8UC1}.
+     */
+    public static ImageMatrice versImageMatrice(Mat matGris) {
+        return ImageMatrice.envelopper(matGris.rows(), matGris.cols(), versOctets(matGris));
+    }
+
+    /**
+     * Copie une ImageMatrice dans une nouvelle matrice OpenCV à un seul canal 8 bits.
+     *
+     * @param image L'image source.
+     * @return La matrice correspondante, de type {@link CvType#CV_8UC1}.
+     */
+    public static Mat versMat(ImageMatrice image) {
+        BibliothequeNative.charger();
+        Mat mat = new Mat(image.getHauteur(), image.getLargeur(), CvType.CV_8UC1);
+        mat.put(0, 0, image.toByteArray());
+        return mat;
+    }
+
+    /**
+     * Copie une matrice OpenCV en niveaux de gris dans une ImageMatrice en réduisant les niveaux de gris
+     * de l'échelle 0-255 à l'échelle 0 à {@code niveaux - 1}.
+     *
+     * @param matGris La matrice en niveaux de gris ({@link CvType#CV_8UC1}).
+     * @param niveaux Le nombre de niveaux de gris de la matrice produite.
+     * @return Une instance d'ImageMatrice contenant les valeurs quantifiées.
+     * @throws IllegalArgumentException Si la matrice n'est pas de type {@link CvType#CV_8UC1}.
+     */
+    public static ImageMatrice quantifier(Mat matGris, int niveaux) {
+        byte[] pixels = versOctets(matGris);
+        int max = niveaux - 1;
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = (byte) (((pixels[i] & 0xFF) * max) / 255);
+        }
+        return ImageMatrice.envelopper(matGris.rows(), matGris.cols(), pixels);
+    }
+
+    /**
+     * Lit tous les pixels d'une matrice OpenCV à un seul canal 8 bits en un seul transfert.
+     *
+     * @param matGris La matrice à lire.
+     * @return Les pixels rangés ligne par ligne.
+     * @throws IllegalArgumentException Si la matrice n'est pas de type {@link CvType#CV_8UC1}.
+     */
+    public static byte[] versOctets(Mat matGris) {
+        if (matGris.type() != CvType.CV_8UC1) {
+            throw new IllegalArgumentException("Type de matrice non supporté : " + CvType.typeToString(matGris.type()));
+        }
+        Mat matContinue = matGris.isContinuous() ? matGris : matGris.clone();
+        byte[] pixels = new byte[(int) matContinue.total()];
+        matContinue.get(0, 0, pixels);
+        if (matContinue != matGris) {
+            matContinue.release();
+        }
+        return pixels;
+    }
+
+    /**
+     * Convertit une image couleur OpenCV en image JavaFX prête à être affichée, réduite pour que son plus
+     * grand côté ne dépasse pas {@code tailleMax} pixels. Les pixels sont transférés en un seul appel,
+     * sans passer par un encodage intermédiaire.
+     *
+     * @param matCouleur La matrice couleur au format BGR ({@link CvType#CV_8UC3}).
+     * @param tailleMax  Taille maximale (en pixels) du plus grand côté de l'image affichée.
+     * @return L'image JavaFX correspondante.
+     * @throws IllegalArgumentException Si la matrice n'est pas de type {@link CvType#CV_8UC3}.
+     */
+    public static Image versImageAffichage(Mat matCouleur, int tailleMax) {
+        if (matCouleur.type() != CvType.CV_8UC3) {
+            throw new IllegalArgumentException("Type de matrice non supporté : " + CvType.typeToString(matCouleur.type()));
+        }
+
+        Mat matRgb = new Mat();
+        try {
+            double echelle = Math.min(1.0, (double) tailleMax / Math.max(matCouleur.cols(), matCouleur.rows()));
+            if (echelle < 1.0) {
+                Mat matReduite = new Mat();
+                Size taille = new Size(Math.max(1, Math.round(matCouleur.cols() * echelle)),
+                        Math.max(1, Math.round(matCouleur.rows() * echelle)));
+                Imgproc.resize(matCouleur, matReduite, taille, 0, 0, Imgproc.INTER_AREA);
+                Imgproc.cvtColor(matReduite, matRgb, Imgproc.COLOR_BGR2RGB);
+                matReduite.release();
+            } else {
+                Imgproc.cvtColor(matCouleur, matRgb, Imgproc.COLOR_BGR2RGB);
+            }
+
+            int largeur = matRgb.cols();
+            int hauteur = matRgb.rows();
+            byte[] pixels = new byte[largeur * hauteur * 3];
+            matRgb.get(0, 0, pixels);
+
+            WritableImage image = new WritableImage(largeur, hauteur);
+            image.getPixelWriter().setPixels(0, 0, largeur, hauteur, PixelFormat.getByteRgbInstance(),
+                    pixels, 0, largeur * 3);
+            return image;
+        } finally {
+            matRgb.release();
+        }
+    }
+}
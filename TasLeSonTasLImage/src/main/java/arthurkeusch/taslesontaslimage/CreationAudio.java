@@ -4,6 +4,7 @@ import javax.sound.sampled.*;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Classe permettant de générer et de jouer un son à partir d'une matrice d'image.
@@ -11,9 +12,19 @@ import java.util.ArrayList;
 public class CreationAudio {
 
     /**
-     * Table des sinusoïdes pré-générées pour chaque fréquence et chaque échantillon.
+     * Paramètres de synthèse et moteur construit pour ces paramètres, toujours remplacés ensemble :
+     * un son est calculé par le moteur qui correspond à la clé sous laquelle il est mis en cache.
+     *
+     * @param parametres Paramètres de synthèse, qui font partie de la clé du cache.
+     * @param moteur     Moteur de synthèse utilisé pour calculer les échantillons de chaque colonne.
+     */
+    private record Configuration(CacheSons.Parametres parametres, MoteurSynthese moteur) {
+    }
+
+    /**
+     * Configuration de synthèse courante, lue une seule fois par calcul.
      */
-    private double[][] sineTable;
+    private volatile Configuration configuration;
 
     /**
      * Taux d'échantillonnage audio (en Hz).
@@ -36,12 +47,52 @@ public class CreationAudio {
     private final int numCols;
 
     /**
-     * Table des fréquences pour chaque ligne.
+     * Chemin du son de notification joué après chaque image.
+     */
+    public static final String CHEMIN_BIP_BOUP = "src/main/sound/bipboup.wav";
+
+    /**
+     * Gain appliqué au son de notification lorsqu'il est mixé au flux audio.
+     */
+    private static final double GAIN_BIP_BOUP = 1.0;
+
+    /**
+     * Nombre de colonnes d'avance que le tampon du flux audio peut contenir.
+     */
+    private static final int COLONNES_TAMPON = 4;
+
+    /**
+     * Flux de sortie audio, ouvert au premier son joué et conservé jusqu'à {@link #fermer()}.
+     */
+    private volatile FluxAudio fluxAudio;
+
+    /**
+     * Verrou protégeant l'ouverture et la fermeture du flux audio.
+     */
+    private final Object verrouFlux = new Object();
+
+    /**
+     * Détecteur des images presque identiques à la dernière image sonorisée par {@link #jouerImage(ImageMatrice)}.
+     */
+    private final DetecteurDoublons detecteurDoublons = new DetecteurDoublons();
+
+    /**
+     * Son de la dernière image calculée par {@link #jouerImage(ImageMatrice)}, réutilisé pour ses doublons.
+     */
+    private byte[] dernierSon;
+
+    /**
+     * Taille maximale (en octets) des sons conservés par le cache : environ 700 images à 44,1 kHz.
+     */
+    private static final long TAILLE_CACHE_SONS = 32L * 1024 * 1024;
+
+    /**
+     * Cache des sons déjà calculés, partagé par toutes les images sonorisées avec {@link #obtenirSon(ImageMatrice)}.
      */
-    private double[] frequencyTable;
+    private final CacheSons cacheSons = new CacheSons(TAILLE_CACHE_SONS);
 
     /**
-     * Constructeur pour initialiser les paramètres audio et générer les tables de fréquences et de sinusoïdes.
+     * Constructeur pour initialiser les paramètres audio et générer la table des fréquences.
      *
      * @param numRows      Nombre de lignes dans la matrice sonore.
      * @param numCols      Nombre de colonnes dans la matrice sonore.
@@ -50,41 +101,101 @@ public class CreationAudio {
      * @param sampleRate   Taux d'échantillonnage audio (en Hz).
      */
     public CreationAudio(int numRows, int numCols, double minFrequency, double maxFrequency, int sampleRate) {
+        this(numRows, numCols, minFrequency, maxFrequency, sampleRate, TypeSynthese.ADDITIVE);
+    }
+
+    /**
+     * Constructeur permettant de choisir le moteur de synthèse.
+     *
+     * @param numRows      Nombre de lignes dans la matrice sonore.
+     * @param numCols      Nombre de colonnes dans la matrice sonore.
+     * @param minFrequency Fréquence minimale (en Hz) utilisée pour la première ligne.
+     * @param maxFrequency Fréquence maximale (en Hz) utilisée pour la dernière ligne.
+     * @param sampleRate   Taux d'échantillonnage audio (en Hz).
+     * @param typeSynthese Le moteur de synthèse à utiliser.
+     */
+    public CreationAudio(int numRows, int numCols, double minFrequency, double maxFrequency, int sampleRate,
+                         TypeSynthese typeSynthese) {
         this.sampleRate = sampleRate;
         this.samplesPerFrame = sampleRate / numRows;
         this.numRows = numRows;
         this.numCols = numCols;
-        initFrequencyTable(minFrequency, maxFrequency);
+        configurer(minFrequency, maxFrequency, typeSynthese);
     }
 
     /**
      * Initialise la table des fréquences pour chaque ligne, en interpolant entre les fréquences minimale et maximale.
+     * La synthèse ne conserve qu'une pulsation par ligne : changer de plage de fréquences est immédiat.
      *
      * @param minFrequency Fréquence minimale (en Hz) pour la première ligne.
      * @param maxFrequency Fréquence maximale (en Hz) pour la dernière ligne.
      */
-    public void initFrequencyTable(double minFrequency, double maxFrequency) {
-        this.frequencyTable = new double[numRows];
-        for (int row = 0; row < numRows; row++) {
-            this.frequencyTable[row] = maxFrequency - (row * (maxFrequency - minFrequency) / (numRows - 1));
-        }
-        initSineTable();
+    public synchronized void initFrequencyTable(double minFrequency, double maxFrequency) {
+        configurer(minFrequency, maxFrequency, getTypeSynthese());
     }
 
     /**
-     * Pré-génère une table de sinusoïdes pour chaque fréquence, échantillon et colonne.
+     * Remplace la configuration de synthèse : la table des fréquences, le moteur et les paramètres
+     * du cache sont construits ensemble puis publiés en une seule écriture.
+     *
+     * @param minFrequency Fréquence minimale (en Hz) pour la première ligne.
+     * @param maxFrequency Fréquence maximale (en Hz) pour la dernière ligne.
+     * @param typeSynthese Le moteur de synthèse à utiliser.
      */
-    public void initSineTable() {
-        this.sineTable = new double[numRows][samplesPerFrame * numCols];
+    private synchronized void configurer(double minFrequency, double maxFrequency, TypeSynthese typeSynthese) {
+        double[] frequencies = new double[numRows];
         for (int row = 0; row < numRows; row++) {
-            double frequency = this.frequencyTable[row];
-            for (int col = 0; col < numCols; col++) {
-                for (int sample = 0; sample < samplesPerFrame; sample++) {
-                    double time = (double) (col * samplesPerFrame + sample) / sampleRate;
-                    this.sineTable[row][col * samplesPerFrame + sample] = Math.sin(2.0 * Math.PI * frequency * time);
-                }
-            }
+            frequencies[row] = maxFrequency - (row * (maxFrequency - minFrequency) / (numRows - 1));
         }
+        this.configuration = new Configuration(
+                new CacheSons.Parametres(numRows, numCols, minFrequency, maxFrequency, sampleRate, typeSynthese),
+                typeSynthese.creer(frequencies, samplesPerFrame, sampleRate));
+        oublierDernierSon();
+    }
+
+    /**
+     * Retourne le type du moteur de synthèse utilisé.
+     *
+     * @return Le type de synthèse.
+     */
+    public TypeSynthese getTypeSynthese() {
+        return configuration.parametres().typeSynthese();
+    }
+
+    /**
+     * Change le moteur de synthèse utilisé pour les prochains sons.
+     *
+     * @param typeSynthese Le nouveau moteur de synthèse.
+     */
+    public synchronized void setTypeSynthese(TypeSynthese typeSynthese) {
+        CacheSons.Parametres parametres = configuration.parametres();
+        configurer(parametres.minFrequency(), parametres.maxFrequency(), typeSynthese);
+    }
+
+    /**
+     * Retourne le détecteur de doublons utilisé par {@link #jouerImage(ImageMatrice)}, et ses statistiques.
+     *
+     * @return Le détecteur de doublons.
+     */
+    public DetecteurDoublons getDetecteurDoublons() {
+        return detecteurDoublons;
+    }
+
+    /**
+     * Retourne le cache des sons déjà calculés, et ses statistiques.
+     *
+     * @return Le cache des sons.
+     */
+    public CacheSons getCacheSons() {
+        return cacheSons;
+    }
+
+    /**
+     * Oublie le son de la dernière image, qui ne correspond plus aux paramètres de synthèse.
+     */
+    private synchronized void oublierDernierSon() {
+        detecteurDoublons.oublierReference();
+        dernierSon = null;
     }
 
     /**
@@ -101,10 +212,12 @@ public class CreationAudio {
             AudioInputStream audioStream = AudioSystem.getAudioInputStream(audioFile);
             AudioFormat format = audioStream.getFormat();
             DataLine.Info info = new DataLine.Info(SourceDataLine.class, format);
+            EvenementEtape evenement = Mesures.debut();
             SourceDataLine audioLine = (SourceDataLine) AudioSystem.getLine(info);
 
             audioLine.open(format);
             audioLine.start();
+            Mesures.fin(evenement, Etape.OUVERTURE_LIGNE, -1, 0);
 
             byte[] buffer = new byte[4096];
             int bytesRead;
@@ -113,7 +226,9 @@ public class CreationAudio {
                 audioLine.write(buffer, 0, bytesRead);
             }
 
+            evenement = Mesures.debut();
             audioLine.drain();
+            Mesures.fin(evenement, Etape.VIDANGE, -1, 0);
             audioLine.close();
             audioStream.close();
         } catch (UnsupportedAudioFileException | IOException | LineUnavailableException e) {
@@ -122,59 +237,305 @@ public class CreationAudio {
     }
 
     /**
-     * Joue un son de notification prédéfini "bip boup".
+     * Joue un son de notification prédéfini "bip boup" à la suite du son en cours, puis attend la fin des deux.
+     * Le son de notification est décodé une seule fois (voir {@link ClipAudio#obtenir(String, int)}) et mixé
+     * au flux audio : il ne demande ni lecture du disque ni ouverture de ligne.
      */
     public void playBipBoup() {
-        playAudioFile("src/main/sound/bipboup.wav");
+        FluxAudio flux = getFluxAudio();
+        if (flux == null) {
+            return;
+        }
+        ClipAudio bipBoup = obtenirBipBoup();
+        if (bipBoup != null) {
+            flux.jouer(bipBoup, GAIN_BIP_BOUP);
+        }
+        EvenementEtape evenement = Mesures.debut();
+        flux.attendreFin();
+        Mesures.fin(evenement, Etape.VIDANGE, -1, 0);
     }
 
     /**
-     * Génère et joue un son basé sur une matrice d'images.
-     * Chaque pixel de la matrice contrôle l'amplitude de la fréquence correspondante.
+     * Retourne le son de notification, décodé au taux d'échantillonnage de la synthèse.
+     *
+     * @return Le son de notification, ou null s'il ne peut pas être lu.
+     */
+    private ClipAudio obtenirBipBoup() {
+        try {
+            return ClipAudio.obtenir(CHEMIN_BIP_BOUP, this.sampleRate);
+        } catch (IOException | UnsupportedAudioFileException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Retourne le flux de sortie audio, en l'ouvrant au premier appel.
+     *
+     * @return Le flux audio, ou null si aucune ligne audio n'est disponible.
+     */
+    private FluxAudio getFluxAudio() {
+        synchronized (verrouFlux) {
+            if (fluxAudio == null) {
+                AudioFormat audioFormat = new AudioFormat(this.sampleRate, 8, 1, true, true);
+                FluxAudio flux = new FluxAudio(audioFormat, COLONNES_TAMPON * this.samplesPerFrame);
+                EvenementEtape evenement = Mesures.debut();
+                try {
+                    flux.ouvrir();
+                } catch (LineUnavailableException e) {
+                    e.printStackTrace();
+                    return null;
+                } finally {
+                    Mesures.fin(evenement, Etape.OUVERTURE_LIGNE, -1, 0);
+                }
+                fluxAudio = flux;
+            }
+            return fluxAudio;
+        }
+    }
+
+    /**
+     * Ouvre à l'avance le flux de sortie audio et décode le son de notification, pour que le premier son joué
+     * n'attende ni l'ouverture de la ligne ni la lecture du fichier.
+     */
+    public void preparer() {
+        getFluxAudio();
+        obtenirBipBoup();
+    }
+
+    /**
+     * Retourne le flux de sortie audio s'il est ouvert, sans l'ouvrir, par exemple pour consulter
+     * sa latence et ses sous-alimentations.
+     *
+     * @return Le flux audio, ou null s'il n'est pas ouvert.
+     */
+    public FluxAudio getFluxOuvert() {
+        return fluxAudio;
+    }
+
+    /**
+     * Ferme le flux de sortie audio. Il sera rouvert automatiquement au prochain son joué.
+     */
+    public void fermer() {
+        synchronized (verrouFlux) {
+            if (fluxAudio != null) {
+                fluxAudio.fermer();
+                fluxAudio = null;
+            }
+        }
+    }
+
+    /**
+     * Vérifie qu'une matrice peut être transformée en son avec les paramètres courants.
+     *
+     * @param image La matrice à vérifier.
+     * @throws IllegalArgumentException Si la matrice est vide, nulle ou plus petite que la matrice sonore.
+     */
+    private void verifierMatrice(ImageMatrice image) {
+        if (image == null || image.estVide()) {
+            throw new IllegalArgumentException("La matrice sonore est vide ou non définie.");
+        }
+        if (image.getHauteur() < this.numRows || image.getLargeur() < this.numCols) {
+            throw new IllegalArgumentException("La matrice sonore doit contenir au moins "
+                    + this.numRows + "x" + this.numCols + " pixels.");
+        }
+    }
+
+    /**
+     * Calcule le son d'une image sans le jouer, en répartissant les colonnes sur plusieurs threads
+     * lorsque la matrice est assez grande.
      *
      * @param image Matrice d'images contenant des valeurs (amplitudes) pour chaque pixel.
+     * @return Les échantillons signés sur 8 bits, au format du flux audio.
      * @throws IllegalArgumentException Si la matrice est vide ou nulle.
      */
-    public void generateAndPlaySound(ImageMatrice image) {
-        ArrayList<ArrayList<Integer>> soundMatrix = image.getImage();
+    public byte[] genererSon(ImageMatrice image) {
+        return genererSon(image, configuration.moteur());
+    }
 
-        if (soundMatrix == null || soundMatrix.isEmpty() || soundMatrix.getFirst().isEmpty()) {
-            throw new IllegalArgumentException("La matrice sonore est vide ou non définie.");
+    /**
+     * Calcule le son d'une image avec un moteur de synthèse donné.
+     *
+     * @param image  Matrice d'images contenant des valeurs (amplitudes) pour chaque pixel.
+     * @param moteur Le moteur de synthèse.
+     * @return Les échantillons signés sur 8 bits, au format du flux audio.
+     * @throws IllegalArgumentException Si la matrice est vide ou nulle.
+     */
+    private byte[] genererSon(ImageMatrice image, MoteurSynthese moteur) {
+        verifierMatrice(image);
+        EvenementEtape evenement = Mesures.debut();
+        double[] samples = new double[this.numCols * this.samplesPerFrame];
+        RenduParallele.rendre(moteur, image, 0, this.numCols, this.samplesPerFrame, samples);
+        byte[] pcm = convertirEn8Bits(samples);
+        Mesures.fin(evenement, Etape.SYNTHESE, pcm.length);
+        return pcm;
+    }
+
+    /**
+     * Calcule à l'avance le son de toute une séquence d'images, en parallèle.
+     *
+     * @param images Les matrices d'images, dans l'ordre de lecture.
+     * @return Les échantillons signés sur 8 bits de chaque image, dans le même ordre.
+     * @throws IllegalArgumentException Si l'une des matrices est vide ou nulle.
+     */
+    public List<byte[]> genererSons(List<ImageMatrice> images) {
+        images.forEach(this::verifierMatrice);
+        List<double[]> rendus = RenduParallele.rendreSequence(configuration.moteur(), images, this.numCols,
+                this.samplesPerFrame);
+        List<byte[]> sons = new ArrayList<>(rendus.size());
+        for (double[] samples : rendus) {
+            sons.add(convertirEn8Bits(samples));
         }
+        return sons;
+    }
 
-        byte[] audioBuffer = new byte[this.numCols * this.samplesPerFrame];
+    /**
+     * Calcule à l'avance le son de toute une séquence d'images, en parallèle, avec des échantillons sur 16 bits.
+     *
+     * @param images Les matrices d'images, dans l'ordre de lecture.
+     * @return Les échantillons signés sur 16 bits de chaque image, dans le même ordre.
+     * @throws IllegalArgumentException Si l'une des matrices est vide ou nulle.
+     */
+    public List<short[]> genererSons16Bits(List<ImageMatrice> images) {
+        images.forEach(this::verifierMatrice);
+        List<double[]> rendus = RenduParallele.rendreSequence(configuration.moteur(), images, this.numCols,
+                this.samplesPerFrame);
+        List<short[]> sons = new ArrayList<>(rendus.size());
+        for (double[] samples : rendus) {
+            short[] pcm = new short[samples.length];
+            NoyauSynthese.convertirEn16Bits(samples, 0, pcm, 0, samples.length);
+            sons.add(pcm);
+        }
+        return sons;
+    }
 
-        for (int col = 0; col < this.numCols; col++) {
-            for (int sample = 0; sample < this.samplesPerFrame; sample++) {
-                double sampleValue = 0;
+    /**
+     * Retourne le taux d'échantillonnage audio.
+     *
+     * @return Le taux d'échantillonnage (en Hz).
+     */
+    public int getSampleRate() {
+        return sampleRate;
+    }
 
-                for (int row = 0; row < this.numRows; row++) {
-                    sampleValue += soundMatrix.get(row).get(col) * sineTable[row][col * this.samplesPerFrame + sample];
-                }
+    /**
+     * Retourne le nombre d'échantillons du son d'une image.
+     *
+     * @return Le nombre d'échantillons produits pour une image.
+     */
+    public int getEchantillonsParImage() {
+        return numCols * samplesPerFrame;
+    }
 
-                sampleValue = Math.max(-1.0, Math.min(1.0, sampleValue));
-                audioBuffer[col * this.samplesPerFrame + sample] = (byte) (sampleValue * 127);
-            }
+    /**
+     * Convertit des échantillons calculés en échantillons signés sur 8 bits.
+     *
+     * @param samples Les échantillons non limités.
+     * @return Les échantillons limités à [-1, 1] et convertis sur 8 bits.
+     */
+    private static byte[] convertirEn8Bits(double[] samples) {
+        byte[] pcm = new byte[samples.length];
+        NoyauSynthese.convertirEn8Bits(samples, 0, pcm, 0, samples.length);
+        return pcm;
+    }
+
+    /**
+     * Joue un son déjà calculé (par exemple avec {@link #genererSon(ImageMatrice)}), suivi du son de notification.
+     *
+     * @param pcm Les échantillons signés sur 8 bits à jouer.
+     */
+    public void jouerSon(byte[] pcm) {
+        FluxAudio flux = getFluxAudio();
+        if (flux == null) {
+            return;
+        }
+        EvenementEtape evenement = Mesures.debut();
+        boolean ecrit = flux.ecrire(pcm, 0, pcm.length);
+        Mesures.fin(evenement, Etape.ECRITURE_LIGNE, pcm.length);
+        if (!ecrit) {
+            return;
         }
+        playBipBoup();
+    }
 
-        AudioFormat audioFormat = new AudioFormat(this.sampleRate, 8, 1, true, true);
-        DataLine.Info info = new DataLine.Info(SourceDataLine.class, audioFormat);
+    /**
+     * Retourne le son d'une image depuis le cache, ou le calcule avec {@link #genererSon(ImageMatrice)}
+     * s'il n'a pas encore été calculé avec les paramètres courants.
+     * Le tableau retourné est partagé avec le cache : il ne doit pas être modifié.
+     *
+     * @param image Matrice d'images contenant des valeurs (amplitudes) pour chaque pixel.
+     * @return Les échantillons signés sur 8 bits du son.
+     * @throws IllegalArgumentException Si la matrice est vide ou nulle.
+     */
+    public byte[] obtenirSon(ImageMatrice image) {
+        verifierMatrice(image);
+        Configuration courante = configuration;
+        return cacheSons.obtenir(image, courante.parametres(), matrice -> genererSon(matrice, courante.moteur()));
+    }
 
-        try {
-            SourceDataLine line = (SourceDataLine) AudioSystem.getLine(info);
-            line.open(audioFormat);
-            line.start();
+    /**
+     * Joue le son d'une image, suivi du son de notification. Si l'image est presque identique à la dernière
+     * image calculée (voir {@link DetecteurDoublons}), son son est réutilisé ; sinon il est cherché dans
+     * le cache avant d'être calculé (voir {@link #obtenirSon(ImageMatrice)}).
+     *
+     * @param image Matrice d'images contenant des valeurs (amplitudes) pour chaque pixel.
+     * @throws IllegalArgumentException Si la matrice est vide ou nulle.
+     */
+    public void jouerImage(ImageMatrice image) {
+        verifierMatrice(image);
 
-            for (int i = 0; i < audioBuffer.length; i += 1024) {
-                int length = Math.min(1024, audioBuffer.length - i);
-                line.write(audioBuffer, i, length);
+        byte[] pcm;
+        synchronized (this) {
+            if (!detecteurDoublons.estDoublon(image) || dernierSon == null) {
+                dernierSon = obtenirSon(image);
             }
+            pcm = dernierSon;
+        }
+        jouerSon(pcm);
+    }
 
-            line.drain();
-            line.close();
-        } catch (LineUnavailableException e) {
-            e.printStackTrace();
+    /**
+     * Génère et joue un son basé sur une matrice d'images.
+     * Chaque pixel de la matrice contrôle l'amplitude de la fréquence correspondante.
+     * Le son est calculé colonne par colonne (voir {@link MoteurSynthese#rendreProgressivement(ImageMatrice)})
+     * et transmis au flux audio au fur et à mesure : la lecture commence dès que la première colonne est prête.
+     *
+     * @param image Matrice d'images contenant des valeurs (amplitudes) pour chaque pixel.
+     * @throws IllegalArgumentException Si la matrice est vide ou nulle.
+     */
+    public void generateAndPlaySound(ImageMatrice image) {
+        verifierMatrice(image);
+
+        FluxAudio flux = getFluxAudio();
+        if (flux == null) {
+            return;
         }
-        playBipBoup();
+        if (diffuser(image, configuration.moteur(), flux)) {
+            playBipBoup();
+        }
+    }
+
+    /**
+     * Calcule le son d'une image colonne par colonne et écrit chaque colonne dans le flux dès qu'elle est prête.
+     *
+     * @param image  Matrice d'images contenant des valeurs (amplitudes) pour chaque pixel.
+     * @param moteur Le moteur de synthèse.
+     * @param flux   Le flux audio qui reçoit les échantillons.
+     * @return true si toutes les colonnes ont été écrites, false si le flux a été fermé ou le thread interrompu.
+     */
+    boolean diffuser(ImageMatrice image, MoteurSynthese moteur, FluxAudio flux) {
+        MoteurSynthese.RenduProgressif rendu = moteur.rendreProgressivement(image);
+        double[] samples = new double[this.samplesPerFrame];
+        byte[] columnBuffer = new byte[this.samplesPerFrame];
+
+        for (int col = 0; col < this.numCols; col++) {
+            rendu.colonneSuivante(samples, 0);
+            NoyauSynthese.convertirEn8Bits(samples, 0, columnBuffer, 0, this.samplesPerFrame);
+
+            if (!flux.ecrire(columnBuffer, 0, columnBuffer.length)) {
+                return false;
+            }
+        }
+        return true;
     }
 }
\ No newline at end of file
@@ -0,0 +1,205 @@
+package arthurkeusch.taslesontaslimage;
+
+/**
+ * Détection des images identiques ou presque identiques à l'image précédemment sonorisée.
+ * <p>
+ * Chaque image est comparée à une image de référence : la dernière image qui n'a pas été reconnue comme
+ * doublon. La comparaison se fait sur les matrices compressées : l'écart moyen (en niveaux de gris) entre
+ * les pixels des deux images doit rester sous un seuil, et aucun pixel ne doit s'écarter de plus d'un écart
+ * maximal. Le second critère empêche qu'un petit objet lumineux, qui ne change que quelques pixels mais
+ * beaucoup, passe sous le seuil moyen. Comparer à la référence plutôt qu'à l'image précédente évite qu'une
+ * lente dérive soit prise pour une suite de doublons. Un doublon peut réutiliser le son de la référence
+ * au lieu d'être recalculé.
+ */
+public class DetecteurDoublons {
+
+    /**
+     * Écart moyen (en niveaux de gris par pixel) en dessous duquel deux images sont considérées comme
+     * identiques : sur une matrice 64x64, environ 80 pixels différents d'un niveau.
+     */
+    public static final double SEUIL_PAR_DEFAUT = 0.02;
+
+    /**
+     * Écart maximal (en niveaux de gris) d'un pixel entre deux images considérées comme identiques :
+     * un niveau, ce qui tolère le bruit de quantification mais pas l'apparition d'un objet.
+     */
+    public static final int ECART_PIXEL_PAR_DEFAUT = 1;
+
+    /**
+     * Écart moyen maximal (en niveaux de gris par pixel) entre un doublon et la référence.
+     */
+    private final double seuil;
+
+    /**
+     * Écart maximal (en niveaux de gris) entre un pixel d'un doublon et le pixel correspondant de la référence.
+     */
+    private final int ecartPixelMax;
+
+    /**
+     * La dernière image qui n'a pas été reconnue comme doublon, ou null.
+     */
+    private ImageMatrice reference;
+
+    /**
+     * Nombre d'images examinées.
+     */
+    private long nombreImages = 0;
+
+    /**
+     * Nombre d'images reconnues comme doublons.
+     */
+    private long nombreDoublons = 0;
+
+    /**
+     * Constructeur du détecteur, avec les seuils par défaut.
+     */
+    public DetecteurDoublons() {
+        this(SEUIL_PAR_DEFAUT, ECART_PIXEL_PAR_DEFAUT);
+    }
+
+    /**
+     * Constructeur du détecteur, avec l'écart maximal par pixel par défaut.
+     *
+     * @param seuil Écart moyen maximal (en niveaux de gris par pixel) entre un doublon et la référence ;
+     *              0 ne détecte que les images strictement identiques.
+     * @throws IllegalArgumentException Si le seuil est négatif.
+     */
+    public DetecteurDoublons(double seuil) {
+        this(seuil, ECART_PIXEL_PAR_DEFAUT);
+    }
+
+    /**
+     * Constructeur du détecteur.
+     *
+     * @param seuil         Écart moyen maximal (en niveaux de gris par pixel) entre un doublon et la référence ;
+     *                      0 ne détecte que les images strictement identiques.
+     * @param ecartPixelMax Écart maximal (en niveaux de gris) entre un pixel d'un doublon et celui de la référence.
+     * @throws IllegalArgumentException Si l'un des seuils est négatif.
+     */
+    public DetecteurDoublons(double seuil, int ecartPixelMax) {
+        if (!(seuil >= 0)) {
+            throw new IllegalArgumentException("Seuil invalide : " + seuil);
+        }
+        if (ecartPixelMax < 0) {
+            throw new IllegalArgumentException("Écart maximal par pixel invalide : " + ecartPixelMax);
+        }
+        this.seuil = seuil;
+        this.ecartPixelMax = ecartPixelMax;
+    }
+
+    /**
+     * Calcule l'écart moyen (en niveaux de gris par pixel) entre deux matrices.
+     *
+     * @param a La première matrice.
+     * @param b La seconde matrice.
+     * @return L'écart moyen, ou {@link Double#POSITIVE_INFINITY} si les dimensions diffèrent.
+     */
+    public static double ecartMoyen(ImageMatrice a, ImageMatrice b) {
+        if (a.getHauteur() != b.getHauteur() || a.getLargeur() != b.getLargeur()) {
+            return Double.POSITIVE_INFINITY;
+        }
+        if (a.estVide()) {
+            return 0;
+        }
+
+        int[] ligneA = new int[a.getLargeur()];
+        int[] ligneB = new int[b.getLargeur()];
+        long somme = 0;
+        for (int row = 0; row < a.getHauteur(); row++) {
+            a.getLigne(row, ligneA);
+            b.getLigne(row, ligneB);
+            for (int col = 0; col < ligneA.length; col++) {
+                somme += Math.abs(ligneA[col] - ligneB[col]);
+            }
+        }
+        return (double) somme / ((long) a.getHauteur() * a.getLargeur());
+    }
+
+    /**
+     * Indique si deux matrices sont assez proches pour partager le même son : aucun pixel ne s'écarte de plus
+     * de {@link #ecartPixelMax} niveaux et l'écart moyen ne dépasse pas {@link #seuil}. La comparaison
+     * s'arrête au premier pixel trop différent.
+     *
+     * @param a La première matrice.
+     * @param b La seconde matrice.
+     * @return true si les matrices sont proches.
+     */
+    private boolean sontProches(ImageMatrice a, ImageMatrice b) {
+        if (a.getHauteur() != b.getHauteur() || a.getLargeur() != b.getLargeur()) {
+            return false;
+        }
+        if (a.estVide()) {
+            return true;
+        }
+
+        int[] ligneA = new int[a.getLargeur()];
+        int[] ligneB = new int[b.getLargeur()];
+        long somme = 0;
+        for (int row = 0; row < a.getHauteur(); row++) {
+            a.getLigne(row, ligneA);
+            b.getLigne(row, ligneB);
+            for (int col = 0; col < ligneA.length; col++) {
+                int ecart = Math.abs(ligneA[col] - ligneB[col]);
+                if (ecart > ecartPixelMax) {
+                    return false;
+                }
+                somme += ecart;
+            }
+        }
+        return (double) somme / ((long) a.getHauteur() * a.getLargeur()) <= seuil;
+    }
+
+    /**
+     * Indique si une image est un doublon de la référence. Si ce n'est pas le cas, elle devient la nouvelle
+     * référence : l'appelant doit alors calculer son son.
+     *
+     * @param image L'image à examiner.
+     * @return true si l'image peut réutiliser le son de la référence.
+     */
+    public synchronized boolean estDoublon(ImageMatrice image) {
+        nombreImages++;
+        if (reference != null && sontProches(reference, image)) {
+            nombreDoublons++;
+            return true;
+        }
+        reference = image;
+        return false;
+    }
+
+    /**
+     * Oublie l'image de référence, par exemple lorsque le son associé n'est plus valable.
+     * La prochaine image ne sera pas considérée comme un doublon.
+     */
+    public synchronized void oublierReference() {
+        reference = null;
+    }
+
+    /**
+     * Retourne le nombre d'images examinées.
+     *
+     * @return Le nombre d'images.
+     */
+    public synchronized long getNombreImages() {
+        return nombreImages;
+    }
+
+    /**
+     * Retourne le nombre d'images reconnues comme doublons.
+     *
+     * @return Le nombre de doublons.
+     */
+    public synchronized long getNombreDoublons() {
+        return nombreDoublons;
+    }
+
+    /**
+     * Retourne un résumé des statistiques du détecteur.
+     *
+     * @return Le nombre de doublons sur le nombre d'images examinées.
+     */
+    @Override
+    public synchronized String toString() {
+        double taux = nombreImages == 0 ? 0 : 100.0 * nombreDoublons / nombreImages;
+        return String.format("%d doublons sur %d images (%.1f %%)", nombreDoublons, nombreImages, taux);
+    }
+}
@@ -0,0 +1,158 @@
+package arthurkeusch.taslesontaslimage;
+
+import java.util.Locale;
+
+/**
+ * Fréquence à laquelle les images d'une vidéo sont extraites : un nombre fixe d'images par seconde,
+ * une image sur {@code K}, ou toutes les images de la vidéo.
+ * <p>
+ * Chaque échantillon correspond à un indice d'image de la vidéo, calculé à partir du nombre d'images
+ * par seconde ({@code CAP_PROP_FPS}) : l'extraction se fait ainsi à l'image près, sans dépendre
+ * du positionnement en millisecondes.
+ */
+public final class Echantillonnage {
+
+    /**
+     * Une image par seconde, l'échantillonnage historique de l'application.
+     */
+    public static final Echantillonnage UNE_PAR_SECONDE = parSeconde(1);
+
+    /**
+     * Nombre d'images extraites par seconde de vidéo, ou 0 si l'échantillonnage ne dépend pas du temps.
+     */
+    private final double imagesParSeconde;
+
+    /**
+     * Nombre d'images de la vidéo entre deux échantillons, si l'échantillonnage ne dépend pas du temps.
+     */
+    private final int pasImages;
+
+    private Echantillonnage(double imagesParSeconde, int pasImages) {
+        this.imagesParSeconde = imagesParSeconde;
+        this.pasImages = pasImages;
+    }
+
+    /**
+     * Extrait un nombre fixe d'images par seconde de vidéo.
+     * Si la vidéo contient moins d'images par seconde, toutes ses images sont extraites.
+     *
+     * @param imagesParSeconde Nombre d'images extraites par seconde de vidéo.
+     * @return L'échantillonnage correspondant.
+     * @throws IllegalArgumentException Si le nombre d'images n'est pas strictement positif.
+     */
+    public static Echantillonnage parSeconde(double imagesParSeconde) {
+        if (!(imagesParSeconde > 0) || Double.isInfinite(imagesParSeconde)) {
+            throw new IllegalArgumentException("Nombre d'images par seconde invalide : " + imagesParSeconde);
+        }
+        return new Echantillonnage(imagesParSeconde, 0);
+    }
+
+    /**
+     * Extrait une image sur {@code pas}.
+     *
+     * @param pas Nombre d'images de la vidéo entre deux échantillons.
+     * @return L'échantillonnage correspondant.
+     * @throws IllegalArgumentException Si le pas n'est pas strictement positif.
+     */
+    public static Echantillonnage uneSur(int pas) {
+        if (pas <= 0) {
+            throw new IllegalArgumentException("Pas d'échantillonnage invalide : " + pas);
+        }
+        return new Echantillonnage(0, pas);
+    }
+
+    /**
+     * Extrait toutes les images de la vidéo.
+     *
+     * @return L'échantillonnage correspondant.
+     */
+    public static Echantillonnage natif() {
+        return uneSur(1);
+    }
+
+    /**
+     * Lit un échantillonnage écrit sous l'une des formes {@code natif}, {@code <n>/s} (n images par seconde)
+     * ou {@code 1/<k>} (une image sur k).
+     *
+     * @param texte Le texte à lire.
+     * @return L'échantillonnage correspondant.
+     * @throws IllegalArgumentException Si le texte ne correspond à aucune de ces formes.
+     */
+    public static Echantillonnage lire(String texte) {
+        String valeur = texte.trim().toLowerCase(Locale.ROOT);
+        try {
+            if (valeur.equals("natif")) {
+                return natif();
+            }
+            if (valeur.endsWith("/s")) {
+                return parSeconde(Double.parseDouble(valeur.substring(0, valeur.length() - 2)));
+            }
+            if (valeur.startsWith("1/")) {
+                return uneSur(Integer.parseInt(valeur.substring(2)));
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Échantillonnage invalide : " + texte, e);
+        }
+        throw new IllegalArgumentException("Échantillonnage invalide : " + texte);
+    }
+
+    /**
+     * Indique si les échantillons dépendent du nombre d'images par seconde de la vidéo.
+     *
+     * @return true pour un nombre fixe d'images par seconde, false pour une image sur {@code K}.
+     */
+    public boolean dependDuTemps() {
+        return imagesParSeconde > 0;
+    }
+
+    /**
+     * Retourne le nombre d'images extraites par seconde de vidéo.
+     *
+     * @return Le nombre d'images par seconde, ou 0 si l'échantillonnage ne dépend pas du temps.
+     */
+    public double getImagesParSeconde() {
+        return imagesParSeconde;
+    }
+
+    /**
+     * Retourne le nombre (éventuellement fractionnaire) d'images de la vidéo entre deux échantillons.
+     *
+     * @param fps Nombre d'images par seconde de la vidéo.
+     * @return Le pas entre deux échantillons, au moins égal à 1.
+     */
+    public double pas(double fps) {
+        return dependDuTemps() ? Math.max(1.0, fps / imagesParSeconde) : pasImages;
+    }
+
+    /**
+     * Retourne l'indice, dans la vidéo, de l'image d'un échantillon.
+     *
+     * @param echantillon L'indice de l'échantillon.
+     * @param fps         Nombre d'images par seconde de la vidéo.
+     * @return L'indice de l'image correspondante.
+     */
+    public long indiceImage(int echantillon, double fps) {
+        return Math.round(echantillon * pas(fps));
+    }
+
+    /**
+     * Retourne le nombre d'échantillons d'une vidéo, c'est-à-dire le nombre d'indices d'échantillon
+     * dont l'image existe.
+     *
+     * @param nbImages Nombre d'images de la vidéo.
+     * @param fps      Nombre d'images par seconde de la vidéo.
+     * @return Le nombre d'échantillons.
+     */
+    public int nombreEchantillons(long nbImages, double fps) {
+        if (nbImages <= 0) {
+            return 0;
+        }
+        // indiceImage(i) < nbImages  <=>  i * pas < nbImages - 0.5
+        return (int) Math.min(Integer.MAX_VALUE, (long) Math.ceil((nbImages - 0.5) / pas(fps)));
+    }
+
+    @Override
+    public String toString() {
+        return dependDuTemps() ? imagesParSeconde + "/s" : "1/" + pasImages;
+    }
+}
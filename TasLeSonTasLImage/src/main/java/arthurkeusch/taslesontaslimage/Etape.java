@@ -0,0 +1,70 @@
+package arthurkeusch.taslesontaslimage;
+
+/**
+ * Les étapes mesurées de la transformation des images en son (voir {@link Mesures}).
+ */
+public enum Etape {
+
+    /**
+     * Initialisation des sous-systèmes au démarrage de l'application.
+     */
+    INITIALISATION("initialisation"),
+
+    /**
+     * Décodage d'un fichier image.
+     */
+    DECODAGE("décodage"),
+
+    /**
+     * Conversion d'une image couleur en niveaux de gris.
+     */
+    NIVEAUX_GRIS("niveaux de gris"),
+
+    /**
+     * Réduction d'une image en matrice compressée.
+     */
+    REDUCTION("réduction"),
+
+    /**
+     * Lecture et décodage d'une image d'une vidéo, images sautées comprises.
+     */
+    DECODAGE_VIDEO("décodage vidéo"),
+
+    /**
+     * Calcul des échantillons du son d'une image.
+     */
+    SYNTHESE("synthèse"),
+
+    /**
+     * Ouverture d'une ligne audio.
+     */
+    OUVERTURE_LIGNE("ouverture de la ligne"),
+
+    /**
+     * Écriture d'un son dans le flux audio, attente de place dans le tampon comprise.
+     */
+    ECRITURE_LIGNE("écriture sur la ligne"),
+
+    /**
+     * Attente de la fin de la lecture des échantillons écrits sur la ligne ({@code drain()}).
+     */
+    VIDANGE("vidange de la ligne");
+
+    /**
+     * Nom de l'étape, tel qu'il apparaît dans les résumés et les événements JFR.
+     */
+    private final String libelle;
+
+    Etape(String libelle) {
+        this.libelle = libelle;
+    }
+
+    /**
+     * Retourne le nom de l'étape.
+     *
+     * @return Le nom de l'étape.
+     */
+    public String getLibelle() {
+        return libelle;
+    }
+}
@@ -0,0 +1,48 @@
+package arthurkeusch.taslesontaslimage;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Événement Java Flight Recorder émis à la fin de chaque étape mesurée (voir {@link Mesures}).
+ * <p>
+ * Les événements ne sont enregistrés que pendant un enregistrement JFR, par exemple avec
+ * {@code -XX:StartFlightRecording:filename=session.jfr}. Hors enregistrement, leur coût est négligeable.
+ */
+@Name("taslesontaslimage.Etape")
+@Label("Étape de sonification")
+@Description("Durée d'une étape de la transformation d'une image en son")
+@Category({"TasLeSonTasLImage"})
+@StackTrace(false)
+public final class EvenementEtape extends Event {
+
+    /**
+     * Nom de l'étape.
+     */
+    @Label("Étape")
+    String etape;
+
+    /**
+     * Indice de l'image traitée, ou -1 s'il n'est pas connu.
+     */
+    @Label("Indice de l'image")
+    int indice;
+
+    /**
+     * Nombre d'octets traités ou produits par l'étape.
+     */
+    @Label("Octets")
+    @DataAmount
+    long octets;
+
+    /**
+     * Instant (en nanosecondes, voir {@link System#nanoTime()}) du début de l'étape. Non enregistré par JFR :
+     * sert au calcul de la durée pour {@link Mesures}.
+     */
+    transient long debut;
+}
@@ -0,0 +1,315 @@
+package arthurkeusch.taslesontaslimage;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Export de la bande son d'une vidéo dans un fichier WAV (PCM 16 bits mono), aussi vite que le processeur
+ * le permet. Aucun périphérique audio n'est utilisé : l'export fonctionne sur une machine sans carte son.
+ */
+public class ExportWav {
+
+    /**
+     * Nombre d'images dont le son est calculé ensemble, en parallèle, avant d'être écrit.
+     */
+    private static final int TAILLE_LOT = 4 * Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Taille (en octets) de l'en-tête d'un fichier WAV PCM.
+     */
+    private static final int TAILLE_EN_TETE = 44;
+
+    /**
+     * Taille maximale (en octets) des échantillons d'un fichier WAV : la taille du bloc RIFF, qui les contient
+     * avec la fin de l'en-tête, est un entier non signé sur 32 bits (soit un peu moins de 4 Go).
+     */
+    static final long TAILLE_MAX_DONNEES = 0xFFFFFFFFL - (TAILLE_EN_TETE - 8);
+
+    /**
+     * L'objet responsable de la création du son pour chaque image.
+     */
+    private final CreationAudio creationAudio;
+
+    /**
+     * L'objet responsable du traitement vidéo.
+     */
+    private final TraitementVideo traitementVideo;
+
+    /**
+     * Son de notification inséré après chaque image, ou null pour ne pas en insérer.
+     */
+    private final short[] notification;
+
+    /**
+     * Tampon d'écriture réutilisé d'une image à l'autre.
+     */
+    private ByteBuffer tampon = ByteBuffer.allocateDirect(0);
+
+    /**
+     * Détecteur des images presque identiques à la précédente, propre au dernier export.
+     */
+    private DetecteurDoublons detecteurDoublons = new DetecteurDoublons();
+
+    /**
+     * Son de la dernière image calculée, réutilisé pour ses doublons.
+     */
+    private short[] dernierSon;
+
+    /**
+     * Constructeur de l'export.
+     *
+     * @param creationAudio   L'objet responsable de la création du son.
+     * @param traitementVideo L'objet responsable du traitement vidéo.
+     * @param notifications   true pour insérer le son "bip boup" après chaque image, comme pendant la lecture.
+     * @throws IOException                   Si le son de notification ne peut pas être lu.
+     * @throws UnsupportedAudioFileException Si le format du son de notification n'est pas pris en charge.
+     */
+    public ExportWav(CreationAudio creationAudio, TraitementVideo traitementVideo, boolean notifications)
+            throws IOException, UnsupportedAudioFileException {
+        this.creationAudio = creationAudio;
+        this.traitementVideo = traitementVideo;
+        this.notification = notifications
+                ? ClipAudio.obtenir(CreationAudio.CHEMIN_BIP_BOUP, creationAudio.getSampleRate()).versPcm16()
+                : null;
+    }
+
+    /**
+     * Calcule la bande son complète d'une vidéo et l'écrit dans un fichier WAV.
+     *
+     * @param videoPath  Chemin de la vidéo à sonoriser.
+     * @param outputPath Chemin du fichier WAV à créer (remplacé s'il existe).
+     * @return Le nombre d'images sonorisées.
+     * @throws IOException En cas d'erreur d'écriture du fichier.
+     */
+    public int exporter(String videoPath, Path outputPath) throws IOException {
+        return exporter(videoPath, Echantillonnage.UNE_PAR_SECONDE, outputPath);
+    }
+
+    /**
+     * Calcule la bande son d'une vidéo échantillonnée à la fréquence choisie et l'écrit dans un fichier WAV.
+     * Chaque image extraite produit le son d'une image complète, quelle que soit la fréquence d'extraction.
+     *
+     * @param videoPath       Chemin de la vidéo à sonoriser.
+     * @param echantillonnage Fréquence d'extraction des images.
+     * @param outputPath      Chemin du fichier WAV à créer (remplacé s'il existe).
+     * @return Le nombre d'images sonorisées.
+     * @throws IOException En cas d'erreur d'écriture du fichier, ou si le son prévu dépasse la taille maximale
+     *                     d'un fichier WAV ou l'espace disponible sur le disque : l'export est alors refusé
+     *                     avant le décodage de la première image.
+     */
+    public int exporter(String videoPath, Echantillonnage echantillonnage, Path outputPath) throws IOException {
+        int nombre = traitementVideo.obtenirNombreEchantillons(videoPath, echantillonnage);
+        verifierTaille(nombre, outputPath);
+        detecteurDoublons = new DetecteurDoublons();
+        dernierSon = null;
+
+        try (FileChannel canal = FileChannel.open(outputPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            canal.position(TAILLE_EN_TETE);
+
+            List<ImageMatrice> lot = new ArrayList<>(TAILLE_LOT);
+            int[] nbImages = {0};
+            try {
+                // Une erreur d'écriture lève une exception non vérifiée, qui arrête aussitôt le décodage.
+                traitementVideo.parcourirFrames(videoPath, echantillonnage, 0, nombre, (echantillon, frame) -> {
+                    int precedente = Mesures.imageCourante(echantillon);
+                    try {
+                        lot.add(TraitementImage.compresserCouleur(frame));
+                    } finally {
+                        Mesures.imageCourante(precedente);
+                    }
+                    nbImages[0]++;
+                    if (lot.size() == TAILLE_LOT) {
+                        try {
+                            ecrireLot(canal, lot);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            ecrireLot(canal, lot);
+
+            long tailleDonnees = canal.position() - TAILLE_EN_TETE;
+            canal.write(enTete(tailleDonnees), 0);
+            return nbImages[0];
+        }
+    }
+
+    /**
+     * Vérifie, avant tout décodage, que le son prévu pour un nombre d'images tient dans un fichier WAV
+     * et dans l'espace disponible sur le disque. Les doublons ne réduisent pas la taille du fichier :
+     * leur son est recopié.
+     *
+     * @param nombre     Nombre d'images à sonoriser.
+     * @param outputPath Chemin du fichier WAV à créer.
+     * @throws IOException Si le son prévu est trop grand, ou si l'espace disponible ne peut pas être lu.
+     */
+    private void verifierTaille(int nombre, Path outputPath) throws IOException {
+        int parImage = creationAudio.getEchantillonsParImage() + (notification == null ? 0 : notification.length);
+        long tailleDonnees = 2L * parImage * nombre;
+        if (tailleDonnees > TAILLE_MAX_DONNEES) {
+            throw new IOException("Le son de " + nombre + " images (" + tailleDonnees + " octets) dépasse la taille"
+                    + " maximale d'un fichier WAV (" + TAILLE_MAX_DONNEES + " octets) : réduisez la fréquence"
+                    + " d'extraction des images.");
+        }
+
+        Path dossier = outputPath.toAbsolutePath().getParent();
+        // Le fichier existant est remplacé : sa place est rendue au disque.
+        long disponible = Files.getFileStore(dossier).getUsableSpace()
+                + (Files.isRegularFile(outputPath) ? Files.size(outputPath) : 0);
+        if (TAILLE_EN_TETE + tailleDonnees > disponible) {
+            throw new IOException("Le son de " + nombre + " images (" + (TAILLE_EN_TETE + tailleDonnees)
+                    + " octets) dépasse l'espace disponible sur le disque (" + disponible + " octets).");
+        }
+    }
+
+    /**
+     * Retourne le détecteur de doublons du dernier export, et ses statistiques.
+     *
+     * @return Le détecteur de doublons.
+     */
+    public DetecteurDoublons getDetecteurDoublons() {
+        return detecteurDoublons;
+    }
+
+    /**
+     * Calcule le son d'un lot d'images et l'écrit à la suite du fichier, puis vide le lot.
+     * Seules les images qui ne sont pas des doublons de la précédente sont calculées ;
+     * les doublons reprennent le son de l'image qu'ils répètent.
+     *
+     * @param canal Le fichier de sortie.
+     * @param lot   Les images à sonoriser.
+     * @throws IOException En cas d'erreur d'écriture.
+     */
+    private void ecrireLot(FileChannel canal, List<ImageMatrice> lot) throws IOException {
+        if (lot.isEmpty()) {
+            return;
+        }
+
+        boolean[] doublons = new boolean[lot.size()];
+        List<ImageMatrice> aCalculer = new ArrayList<>(lot.size());
+        for (int i = 0; i < lot.size(); i++) {
+            doublons[i] = detecteurDoublons.estDoublon(lot.get(i)) && (dernierSon != null || i > 0);
+            if (!doublons[i]) {
+                aCalculer.add(lot.get(i));
+            }
+        }
+
+        List<short[]> sons = creationAudio.genererSons16Bits(aCalculer);
+        int suivant = 0;
+        for (boolean doublon : doublons) {
+            if (!doublon) {
+                dernierSon = sons.get(suivant++);
+            }
+            ecrire(canal, dernierSon);
+            if (notification != null) {
+                ecrire(canal, notification);
+            }
+        }
+        lot.clear();
+    }
+
+    /**
+     * Écrit des échantillons 16 bits en petit-boutiste à la suite du fichier.
+     *
+     * @param canal        Le fichier de sortie.
+     * @param echantillons Les échantillons à écrire.
+     * @throws IOException En cas d'erreur d'écriture, ou si le fichier dépasserait la taille maximale
+     *                     d'un fichier WAV ({@link #TAILLE_MAX_DONNEES}).
+     */
+    private void ecrire(FileChannel canal, short[] echantillons) throws IOException {
+        if (canal.position() - TAILLE_EN_TETE + 2L * echantillons.length > TAILLE_MAX_DONNEES) {
+            throw new IOException("Le son dépasse la taille maximale d'un fichier WAV ("
+                    + TAILLE_MAX_DONNEES + " octets) : réduisez la fréquence d'extraction des images.");
+        }
+        if (tampon.capacity() < 2 * echantillons.length) {
+            tampon = ByteBuffer.allocateDirect(2 * echantillons.length).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        tampon.clear().limit(2 * echantillons.length);
+        tampon.asShortBuffer().put(echantillons);
+        while (tampon.hasRemaining()) {
+            canal.write(tampon);
+        }
+    }
+
+    /**
+     * Construit l'en-tête WAV d'un fichier PCM 16 bits mono.
+     *
+     * Les tailles sont écrites comme des entiers non signés sur 32 bits.
+     *
+     * @param tailleDonnees Taille (en octets) des échantillons, au plus {@link #TAILLE_MAX_DONNEES}.
+     * @return L'en-tête, prêt à être écrit.
+     * @throws IllegalArgumentException Si la taille ne peut pas être représentée dans l'en-tête.
+     */
+    private ByteBuffer enTete(long tailleDonnees) {
+        if (tailleDonnees < 0 || tailleDonnees > TAILLE_MAX_DONNEES) {
+            throw new IllegalArgumentException("Taille des données invalide pour un fichier WAV : " + tailleDonnees);
+        }
+        int sampleRate = creationAudio.getSampleRate();
+        ByteBuffer tampon = ByteBuffer.allocate(TAILLE_EN_TETE).order(ByteOrder.LITTLE_ENDIAN);
+        tampon.put("RIFF".getBytes(StandardCharsets.US_ASCII));
+        tampon.putInt((int) (tailleDonnees + TAILLE_EN_TETE - 8));
+        tampon.put("WAVEfmt ".getBytes(StandardCharsets.US_ASCII));
+        tampon.putInt(16);
+        tampon.putShort((short) 1);
+        tampon.putShort((short) 1);
+        tampon.putInt(sampleRate);
+        tampon.putInt(sampleRate * 2);
+        tampon.putShort((short) 2);
+        tampon.putShort((short) 16);
+        tampon.put("data".getBytes(StandardCharsets.US_ASCII));
+        tampon.putInt((int) tailleDonnees);
+        return tampon.flip();
+    }
+
+    /**
+     * Point d'entrée en ligne de commande, sans interface graphique :
+     * {@code ExportWav <video> <sortie.wav> [--sans-notification] [--echantillonnage natif|<n>/s|1/<k>]}.
+     *
+     * @param args Les arguments de la ligne de commande.
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage : ExportWav <video> <sortie.wav> [--sans-notification] "
+                    + "[--echantillonnage natif|<n>/s|1/<k>]");
+            return;
+        }
+        boolean notifications = true;
+        Echantillonnage echantillonnage = Echantillonnage.UNE_PAR_SECONDE;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("--sans-notification")) {
+                notifications = false;
+            } else if (args[i].equals("--echantillonnage") && i + 1 < args.length) {
+                echantillonnage = Echantillonnage.lire(args[++i]);
+            } else {
+                System.out.println("Option inconnue : " + args[i]);
+                return;
+            }
+        }
+
+        try {
+            ExportWav export = new ExportWav(new CreationAudio(64, 64, 200, 3000, 44100),
+                    new TraitementVideo(), notifications);
+            long debut = System.nanoTime();
+            int nbImages = export.exporter(args[0], echantillonnage, Path.of(args[1]));
+            System.out.printf("%d images exportées dans %s en %.1f s (%s)%n",
+                    nbImages, args[1], (System.nanoTime() - debut) / 1e9, export.getDetecteurDoublons());
+            System.out.print(Mesures.resume());
+        } catch (IOException | UnsupportedAudioFileException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,568 @@
+package arthurkeusch.taslesontaslimage;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sortie audio continue : une seule ligne {@link SourceDataLine} reste ouverte pendant toute la session
+ * et est alimentée par un tampon circulaire. Le producteur écrit les échantillons au fur et à mesure
+ * de leur calcul, pendant qu'un thread dédié les transmet à la ligne.
+ * <p>
+ * Le thread d'écriture surveille la ligne : s'il s'apprête à lui transmettre un bloc alors qu'elle n'a
+ * plus rien à jouer ({@code available()} et position de lecture), en dehors d'un silence attendu (fin d'un son,
+ * abandon), la ligne a été sous-alimentée et un clic a été entendu. La sortie démarre avec un profil à faible
+ * latence ; après une sous-alimentation, elle passe à un profil plus sûr (remplissage de la ligne et blocs plus
+ * grands), puis revient au profil à faible latence après {@value #DELAI_RETOUR_MS} ms sans sous-alimentation,
+ * au silence suivant.
+ * <p>
+ * La ligne est ouverte une fois pour toutes avec un tampon assez grand pour le profil le plus exigeant :
+ * le profil ne règle que la taille des blocs et le remplissage visé, que le thread d'écriture respecte
+ * en attendant avant chaque bloc que la ligne ait joué assez d'échantillons. Changer de profil est donc
+ * immédiat ; la ligne n'est rouverte que si le système lui a accordé un tampon trop petit pour le nouveau profil.
+ * <p>
+ * Des clips courts (par exemple le son de notification) peuvent être ajoutés au flux avec
+ * {@link #jouer(ClipAudio, double)} : ils sont mixés par {@link MixeurAudio} aux échantillons du flux,
+ * sur la même ligne, sans ouvrir de ligne supplémentaire.
+ */
+public class FluxAudio {
+
+    /**
+     * Un réglage de la sortie : remplissage visé de la ligne et taille des blocs qui lui sont transmis.
+     */
+    public enum Profil {
+
+        /**
+         * Latence minimale, pour une machine peu chargée.
+         */
+        FAIBLE_LATENCE(40, 10),
+
+        /**
+         * Tampon large, qui absorbe les retards du thread d'écriture sur une machine chargée.
+         */
+        SUR(250, 50);
+
+        /**
+         * Durée (en millisecondes) des échantillons que le thread d'écriture laisse au plus en attente
+         * dans la ligne : c'est la part de la latence due à la ligne.
+         */
+        private final int remplissageMs;
+
+        /**
+         * Durée (en millisecondes) des échantillons d'un bloc transmis à la ligne.
+         */
+        private final int blocMs;
+
+        Profil(int remplissageMs, int blocMs) {
+            this.remplissageMs = remplissageMs;
+            this.blocMs = blocMs;
+        }
+
+        /**
+         * Retourne la durée (en millisecondes) du plus grand remplissage visé par un profil.
+         *
+         * @return La durée du tampon de ligne nécessaire à tous les profils.
+         */
+        private static int remplissageMaxMs() {
+            int max = 0;
+            for (Profil p : values()) {
+                max = Math.max(max, p.remplissageMs);
+            }
+            return max;
+        }
+    }
+
+    /**
+     * Durée (en millisecondes) sans sous-alimentation au bout de laquelle le profil à faible latence est rétabli.
+     */
+    private static final long DELAI_RETOUR_MS = 30_000;
+
+    /**
+     * Format des échantillons transmis à la ligne.
+     */
+    private final AudioFormat format;
+
+    /**
+     * Taille (en octets) d'une trame audio : la ligne n'accepte que des trames entières.
+     */
+    private final int tailleTrame;
+
+    /**
+     * Nombre d'octets joués par seconde.
+     */
+    private final double octetsParSeconde;
+
+    /**
+     * Tampon circulaire entre le producteur et le thread d'écriture.
+     */
+    private final byte[] tampon;
+
+    /**
+     * Verrou protégeant l'état du tampon circulaire.
+     */
+    private final Object verrou = new Object();
+
+    /**
+     * Verrou protégeant l'ouverture et la fermeture de la ligne.
+     */
+    private final Object verrouLigne = new Object();
+
+    /**
+     * Le mixeur qui ajoute les clips au flux.
+     */
+    private final MixeurAudio mixeur;
+
+    /**
+     * Nombre de trames transmises à la ligne depuis l'ouverture du flux : position dans le flux
+     * de la prochaine trame lue dans le tampon circulaire.
+     */
+    private long tramesLues = 0;
+
+    /**
+     * Position de lecture dans le tampon circulaire.
+     */
+    private int positionLecture = 0;
+
+    /**
+     * Nombre d'octets en attente dans le tampon circulaire.
+     */
+    private int remplissage = 0;
+
+    /**
+     * Indique si le thread d'écriture est en train de transmettre un bloc à la ligne. Pendant un bloc,
+     * seul le thread d'écriture utilise la ligne : il peut la remplacer (changement de profil) et met à jour
+     * {@link #tramesTransmises}.
+     */
+    private boolean blocEnCours = false;
+
+    /**
+     * Nombre d'appels à {@link #annuler()} : une écriture ou un bloc commencés avant un abandon sont interrompus.
+     */
+    private volatile long abandons = 0;
+
+    /**
+     * Indique si le flux a été fermé.
+     */
+    private boolean ferme = false;
+
+    /**
+     * Indique si la ligne peut se vider sans que ce soit une sous-alimentation : à l'ouverture,
+     * après la fin d'un son ou après un abandon.
+     */
+    private boolean silenceAttendu = true;
+
+    /**
+     * La ligne audio de sortie.
+     */
+    private volatile SourceDataLine ligne;
+
+    /**
+     * Le profil de la ligne ouverte.
+     */
+    private volatile Profil profil = Profil.FAIBLE_LATENCE;
+
+    /**
+     * Nombre de trames transmises à la ligne ouverte.
+     */
+    private volatile long tramesTransmises = 0;
+
+    /**
+     * Nombre de sous-alimentations détectées.
+     */
+    private volatile long sousAlimentations = 0;
+
+    /**
+     * Instant (en nanosecondes) de la dernière sous-alimentation.
+     */
+    private long derniereSousAlimentation = 0;
+
+    /**
+     * Le thread qui transmet le contenu du tampon à la ligne.
+     */
+    private Thread threadEcriture;
+
+    /**
+     * Constructeur du flux audio.
+     *
+     * @param format   Format des échantillons écrits dans le flux.
+     * @param capacite Capacité (en octets) du tampon circulaire, arrondie à un nombre entier de trames.
+     * @throws IllegalArgumentException Si le format n'est pas du PCM signé sur 8 ou 16 bits.
+     */
+    public FluxAudio(AudioFormat format, int capacite) {
+        this.mixeur = new MixeurAudio(format);
+        this.format = format;
+        this.tailleTrame = Math.max(1, format.getFrameSize());
+        this.octetsParSeconde = format.getFrameRate() * tailleTrame;
+        this.tampon = new byte[Math.max(1, capacite / tailleTrame) * tailleTrame];
+    }
+
+    /**
+     * Ouvre la ligne de sortie et démarre le thread d'écriture.
+     *
+     * @throws LineUnavailableException Si aucune ligne audio n'est disponible pour ce format.
+     */
+    public void ouvrir() throws LineUnavailableException {
+        synchronized (verrouLigne) {
+            ouvrirLigne(Profil.remplissageMaxMs());
+        }
+
+        threadEcriture = new Thread(this::transmettre, "flux-audio");
+        threadEcriture.setDaemon(true);
+        threadEcriture.start();
+    }
+
+    /**
+     * Retourne le format des échantillons attendus par le flux.
+     *
+     * @return Le format audio.
+     */
+    public AudioFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Retourne le profil courant de la sortie.
+     *
+     * @return Le profil courant.
+     */
+    public Profil getProfil() {
+        return profil;
+    }
+
+    /**
+     * Retourne le nombre de sous-alimentations de la ligne détectées depuis l'ouverture du flux.
+     *
+     * @return Le nombre de sous-alimentations.
+     */
+    public long getSousAlimentations() {
+        return sousAlimentations;
+    }
+
+    /**
+     * Retourne la latence courante de la sortie : durée des échantillons en attente dans le tampon circulaire
+     * et dans la ligne, c'est-à-dire le délai avant qu'un échantillon écrit maintenant soit entendu.
+     *
+     * @return La latence (en millisecondes).
+     */
+    public double getLatenceMillis() {
+        int enAttente;
+        synchronized (verrou) {
+            enAttente = remplissage;
+        }
+        SourceDataLine ligneCourante = ligne;
+        long dansLigne = ligneCourante == null ? 0
+                : Math.max(0, tramesTransmises - ligneCourante.getLongFramePosition()) * tailleTrame;
+        return 1000.0 * (enAttente + dansLigne) / octetsParSeconde;
+    }
+
+    /**
+     * Ajoute des échantillons au flux. Bloque tant que le tampon circulaire est plein.
+     *
+     * @param donnees  Les échantillons à écrire.
+     * @param offset   Position du premier octet à écrire.
+     * @param longueur Nombre d'octets à écrire.
+     * @return true si tous les octets ont été écrits, false si le flux est fermé, si l'écriture a été abandonnée
+     * par {@link #annuler()} ou si le thread a été interrompu.
+     */
+    public boolean ecrire(byte[] donnees, int offset, int longueur) {
+        synchronized (verrou) {
+            long abandonsEntree = abandons;
+            try {
+                while (longueur > 0) {
+                    while (remplissage == tampon.length && !ferme && abandons == abandonsEntree) {
+                        verrou.wait();
+                    }
+                    if (ferme || abandons != abandonsEntree) {
+                        return false;
+                    }
+
+                    int positionEcriture = (positionLecture + remplissage) % tampon.length;
+                    int n = Math.min(longueur, Math.min(tampon.length - remplissage, tampon.length - positionEcriture));
+                    System.arraycopy(donnees, offset, tampon, positionEcriture, n);
+                    remplissage += n;
+                    offset += n;
+                    longueur -= n;
+                    verrou.notifyAll();
+                }
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Ajoute un clip au flux, à la suite des échantillons déjà écrits : il est mixé avec les échantillons
+     * écrits ensuite. Ne bloque pas.
+     *
+     * @param clip Le clip, au taux d'échantillonnage du flux.
+     * @param gain Le gain appliqué au clip (1 pour le niveau d'origine).
+     */
+    public void jouer(ClipAudio clip, double gain) {
+        synchronized (verrou) {
+            if (ferme) {
+                return;
+            }
+            mixeur.ajouter(clip, gain, tramesLues + remplissage / tailleTrame);
+            verrou.notifyAll();
+        }
+    }
+
+    /**
+     * Attend que tous les échantillons écrits et tous les clips ajoutés aient été joués.
+     * La ligne est vidée avec {@link #verrouLigne} : elle ne peut pas être remplacée ni fermée pendant l'attente.
+     */
+    public void attendreFin() {
+        synchronized (verrou) {
+            try {
+                while ((remplissage >= tailleTrame || blocEnCours || mixeur.estActif(tramesLues)) && !ferme) {
+                    verrou.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            silenceAttendu = true;
+        }
+        synchronized (verrouLigne) {
+            ligne.drain();
+        }
+    }
+
+    /**
+     * Abandonne les échantillons en attente, sans fermer la ligne : les écritures en cours ({@link #ecrire})
+     * s'arrêtent et retournent false, et le bloc qui attendait de la place dans la ligne n'est pas transmis.
+     * Attend la fin du bloc en cours de transmission : la ligne n'est vidée qu'une fois que le thread d'écriture
+     * ne l'utilise plus, et aucun nouveau bloc ne peut commencer avant la fin de l'abandon.
+     */
+    public void annuler() {
+        synchronized (verrou) {
+            abandons++;
+            positionLecture = 0;
+            remplissage = 0;
+            silenceAttendu = true;
+            mixeur.vider();
+            verrou.notifyAll();
+            try {
+                while (blocEnCours && !ferme) {
+                    verrou.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (ferme || ligne == null) {
+                return;
+            }
+            ligne.flush();
+            tramesTransmises = ligne.getLongFramePosition();
+        }
+    }
+
+    /**
+     * Arrête le thread d'écriture et ferme la ligne de sortie.
+     */
+    public void fermer() {
+        synchronized (verrou) {
+            ferme = true;
+            verrou.notifyAll();
+        }
+        if (threadEcriture != null) {
+            threadEcriture.interrupt();
+        }
+        synchronized (verrouLigne) {
+            if (ligne != null) {
+                ligne.stop();
+                ligne.close();
+            }
+        }
+    }
+
+    /**
+     * Retourne l'état de la sortie : profil, latence et nombre de sous-alimentations.
+     *
+     * @return Une description de l'état de la sortie.
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "profil %s, latence %.1f ms, %d sous-alimentation(s)",
+                profil, getLatenceMillis(), sousAlimentations);
+    }
+
+    /**
+     * Ouvre une ligne, en remplacement de la ligne courante. Doit être appelée avec {@link #verrouLigne}.
+     *
+     * @param tamponMs Durée (en millisecondes) des échantillons que le tampon de la ligne doit pouvoir contenir.
+     * @throws LineUnavailableException Si aucune ligne audio n'est disponible pour ce format.
+     */
+    private void ouvrirLigne(int tamponMs) throws LineUnavailableException {
+        if (ligne != null) {
+            ligne.stop();
+            ligne.close();
+        }
+        DataLine.Info info = new DataLine.Info(SourceDataLine.class, format);
+        SourceDataLine nouvelleLigne = (SourceDataLine) AudioSystem.getLine(info);
+        nouvelleLigne.open(format, enTrames(tamponMs) * tailleTrame);
+        nouvelleLigne.start();
+        tramesTransmises = 0;
+        ligne = nouvelleLigne;
+    }
+
+    /**
+     * Change le profil de la sortie, si le flux n'est pas fermé. La taille des blocs et le remplissage visé
+     * changent sur la ligne ouverte ; la ligne n'est rouverte que si son tampon ne peut pas contenir le
+     * remplissage du nouveau profil (elle n'a alors plus rien à jouer, puisque le changement suit
+     * une sous-alimentation). Appelée uniquement par le thread d'écriture pendant un bloc ({@link #blocEnCours}) :
+     * {@link #annuler()} ne peut donc pas vider la ligne pendant son remplacement, et {@link #attendreFin()}
+     * ne peut pas la vider pendant qu'elle est fermée.
+     *
+     * @param nouveauProfil Le nouveau profil.
+     */
+    private void changerProfil(Profil nouveauProfil) {
+        if (ligne.getBufferSize() >= enTrames(nouveauProfil.remplissageMs) * tailleTrame) {
+            profil = nouveauProfil;
+            return;
+        }
+        synchronized (verrouLigne) {
+            synchronized (verrou) {
+                if (ferme) {
+                    return;
+                }
+            }
+            try {
+                ouvrirLigne(nouveauProfil.remplissageMs);
+                profil = nouveauProfil;
+            } catch (LineUnavailableException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Attend que la ligne ait assez joué pour recevoir un bloc sans dépasser le remplissage visé par le profil.
+     * L'attente dure le temps de jouer l'excédent ; un bloc plus grand que le remplissage visé est transmis
+     * dès que la ligne est vide.
+     *
+     * @param longueur     Taille (en octets) du bloc à transmettre.
+     * @param abandonsBloc Valeur de {@link #abandons} lorsque le bloc a été retiré du tampon circulaire.
+     * @return false si le bloc a été abandonné ou si le thread a été interrompu (fermeture du flux).
+     */
+    private boolean attendreRemplissage(int longueur, long abandonsBloc) {
+        SourceDataLine ligneCourante = ligne;
+        int vise = Math.max(longueur, enTrames(profil.remplissageMs) * tailleTrame);
+        while (abandons == abandonsBloc) {
+            int exces = ligneCourante.getBufferSize() - ligneCourante.available() + longueur - vise;
+            if (exces <= 0) {
+                return true;
+            }
+            LockSupport.parkNanos((long) (exces * 1e9 / octetsParSeconde));
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Convertit une durée en nombre de trames, d'au moins une trame.
+     *
+     * @param millis La durée (en millisecondes).
+     * @return Le nombre de trames.
+     */
+    private int enTrames(int millis) {
+        return Math.max(1, (int) (format.getFrameRate() * millis / 1000));
+    }
+
+    /**
+     * Indique si la ligne n'a plus aucun échantillon à jouer.
+     *
+     * @return true si la ligne est vide.
+     */
+    private boolean ligneVide() {
+        SourceDataLine ligneCourante = ligne;
+        return ligneCourante.available() >= ligneCourante.getBufferSize()
+                || ligneCourante.getLongFramePosition() >= tramesTransmises;
+    }
+
+    /**
+     * Adapte le profil de la ligne avant la transmission d'un bloc : passe au profil sûr si la ligne est vide
+     * alors qu'aucun silence n'était attendu, et revient au profil à faible latence au début d'un son
+     * lorsque la dernière sous-alimentation est assez ancienne.
+     *
+     * @param apresSilence Indique si le bloc est le premier après un silence attendu.
+     */
+    private void adapterProfil(boolean apresSilence) {
+        long maintenant = System.nanoTime();
+        if (!apresSilence && ligneVide()) {
+            sousAlimentations++;
+            derniereSousAlimentation = maintenant;
+            if (profil == Profil.FAIBLE_LATENCE) {
+                changerProfil(Profil.SUR);
+            }
+        } else if (apresSilence && profil == Profil.SUR && ligneVide()
+                && maintenant - derniereSousAlimentation > DELAI_RETOUR_MS * 1_000_000) {
+            changerProfil(Profil.FAIBLE_LATENCE);
+        }
+    }
+
+    /**
+     * Boucle du thread d'écriture : transmet le contenu du tampon circulaire à la ligne, bloc par bloc,
+     * après y avoir mixé les clips en cours. Lorsque le tampon est vide mais qu'un clip n'est pas terminé,
+     * le clip est joué sur un fond de silence. La taille des blocs et le remplissage de la ligne suivent le profil.
+     */
+    private void transmettre() {
+        byte[] bloc = new byte[enTrames(Profil.SUR.blocMs) * tailleTrame];
+        while (true) {
+            int n;
+            long position;
+            boolean apresSilence;
+            long abandonsBloc;
+            synchronized (verrou) {
+                blocEnCours = false;
+                verrou.notifyAll();
+                try {
+                    while (remplissage < tailleTrame && !mixeur.estActif(tramesLues) && !ferme) {
+                        verrou.wait();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (ferme) {
+                    return;
+                }
+
+                int tailleBloc = enTrames(profil.blocMs) * tailleTrame;
+                if (remplissage >= tailleTrame) {
+                    n = Math.min(tailleBloc, Math.min(remplissage, tampon.length - positionLecture));
+                    n -= n % tailleTrame;
+                    System.arraycopy(tampon, positionLecture, bloc, 0, n);
+                    positionLecture = (positionLecture + n) % tampon.length;
+                    remplissage -= n;
+                } else {
+                    n = (int) Math.min(tailleBloc / tailleTrame, mixeur.restant(tramesLues)) * tailleTrame;
+                    Arrays.fill(bloc, 0, n, (byte) 0);
+                }
+                position = tramesLues;
+                tramesLues += n / tailleTrame;
+                blocEnCours = true;
+                apresSilence = silenceAttendu;
+                silenceAttendu = false;
+                abandonsBloc = abandons;
+                verrou.notifyAll();
+            }
+            mixeur.mixer(bloc, 0, n / tailleTrame, position);
+            adapterProfil(apresSilence);
+            // Après une fermeture, la boucle s'arrête au tour suivant : le thread reste interrompu.
+            if (attendreRemplissage(n, abandonsBloc)) {
+                int ecrits = ligne.write(bloc, 0, n);
+                tramesTransmises += ecrits / tailleTrame;
+            }
+        }
+    }
+}
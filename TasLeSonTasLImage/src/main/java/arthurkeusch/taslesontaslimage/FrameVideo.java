@@ -0,0 +1,14 @@
+package arthurkeusch.taslesontaslimage;
+
+import javafx.scene.image.Image;
+
+/**
+ * Une image extraite d'une vidéo, déjà prête pour la lecture : sa matrice compressée pour la synthèse
+ * audio et son image réduite pour l'affichage.
+ *
+ * @param indice    L'indice de l'échantillon dans la vidéo.
+ * @param matrice   La matrice compressée (64x64 pixels, 16 niveaux de gris).
+ * @param affichage L'image à afficher.
+ */
+public record FrameVideo(int indice, ImageMatrice matrice, Image affichage) {
+}
@@ -1,13 +1,79 @@
 package arthurkeusch.taslesontaslimage;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
-public class ImageMatrice {
+public final class ImageMatrice {
 
     /**
-     * Représente l'image sous forme de matrice 2D où chaque entier correspond à un pixel (niveaux de gris).
+     * Pixels de l'image (niveaux de gris de 0 à 255), stockés ligne par ligne dans un tableau primitif.
+     * Le pixel ({@code row}, {@code col}) se trouve à l'indice {@code row * largeur + col}.
      */
-    private ArrayList<ArrayList<Integer>> image;
+    private byte[] pixels;
+
+    /**
+     * Nombre de lignes de la matrice.
+     */
+    private int hauteur;
+
+    /**
+     * Nombre de colonnes de la matrice.
+     */
+    private int largeur;
+
+    /**
+     * Construit une matrice vide (tous les pixels à 0) de la taille spécifiée.
+     *
+     * @param hauteur le nombre de lignes.
+     * @param largeur le nombre de colonnes.
+     * @throws IllegalArgumentException Si l'une des dimensions est négative.
+     */
+    public ImageMatrice(int hauteur, int largeur) {
+        if (hauteur < 0 || largeur < 0) {
+            throw new IllegalArgumentException("Dimensions invalides : " + hauteur + "x" + largeur);
+        }
+        this.hauteur = hauteur;
+        this.largeur = largeur;
+        this.pixels = new byte[hauteur * largeur];
+    }
+
+    /**
+     * Construit une matrice à partir d'un tableau de pixels rangés ligne par ligne.
+     * Le tableau est copié.
+     *
+     * @param hauteur le nombre de lignes.
+     * @param largeur le nombre de colonnes.
+     * @param pixels  les pixels (niveaux de gris non signés), de taille {@code hauteur * largeur}.
+     * @throws IllegalArgumentException Si la taille du tableau ne correspond pas aux dimensions.
+     */
+    public ImageMatrice(int hauteur, int largeur, byte[] pixels) {
+        this(hauteur, largeur);
+        copierDepuis(pixels);
+    }
+
+    /**
+     * Construit une matrice qui utilise directement le tableau fourni, sans le copier.
+     * Réservé aux conversions internes qui viennent de créer le tableau.
+     *
+     * @param hauteur le nombre de lignes.
+     * @param largeur le nombre de colonnes.
+     * @param pixels  les pixels rangés ligne par ligne, de taille {@code hauteur * largeur}.
+     * @return la matrice construite.
+     * @throws IllegalArgumentException Si la taille du tableau ne correspond pas aux dimensions.
+     */
+    static ImageMatrice envelopper(int hauteur, int largeur, byte[] pixels) {
+        if (hauteur < 0 || largeur < 0) {
+            throw new IllegalArgumentException("Dimensions invalides : " + hauteur + "x" + largeur);
+        }
+        if (pixels.length != hauteur * largeur) {
+            throw new IllegalArgumentException("Taille attendue : " + hauteur * largeur + ", reçue : " + pixels.length);
+        }
+        ImageMatrice image = new ImageMatrice(0, 0);
+        image.hauteur = hauteur;
+        image.largeur = largeur;
+        image.pixels = pixels;
+        return image;
+    }
 
     /**
      * Constructeur de la classe {@code Image}.
@@ -15,15 +81,24 @@ public class ImageMatrice {
      * @param image la matrice de l'image à initialiser.
      */
     public ImageMatrice(ArrayList<ArrayList<Integer>> image) {
-        this.image = image;
+        setImage(image);
     }
 
     /**
      * Retourne la matrice de l'image.
+     * La liste est construite à chaque appel : les modifications qui lui sont apportées ne sont pas répercutées.
      *
      * @return la matrice de l'image sous forme d'une liste 2D.
      */
     public ArrayList<ArrayList<Integer>> getImage() {
+        ArrayList<ArrayList<Integer>> image = new ArrayList<>(this.hauteur);
+        for (int row = 0; row < this.hauteur; row++) {
+            ArrayList<Integer> ligne = new ArrayList<>(this.largeur);
+            for (int col = 0; col < this.largeur; col++) {
+                ligne.add(get(row, col));
+            }
+            image.add(ligne);
+        }
         return image;
     }
 
@@ -31,9 +106,75 @@ public class ImageMatrice {
      * Met à jour la matrice de l'image.
      *
      * @param image la nouvelle matrice de l'image.
+     * @throws IllegalArgumentException Si les lignes de la matrice n'ont pas toutes la même taille.
      */
     public void setImage(ArrayList<ArrayList<Integer>> image) {
-        this.image = image;
+        int nouvelleHauteur = image == null ? 0 : image.size();
+        int nouvelleLargeur = nouvelleHauteur == 0 ? 0 : image.getFirst().size();
+
+        byte[] nouveauxPixels = new byte[nouvelleHauteur * nouvelleLargeur];
+        for (int row = 0; row < nouvelleHauteur; row++) {
+            ArrayList<Integer> ligne = image.get(row);
+            if (ligne.size() != nouvelleLargeur) {
+                throw new IllegalArgumentException("La ligne " + row + " ne contient pas " + nouvelleLargeur + " pixels.");
+            }
+            for (int col = 0; col < nouvelleLargeur; col++) {
+                nouveauxPixels[row * nouvelleLargeur + col] = (byte) (int) ligne.get(col);
+            }
+        }
+
+        this.hauteur = nouvelleHauteur;
+        this.largeur = nouvelleLargeur;
+        this.pixels = nouveauxPixels;
+    }
+
+    /**
+     * Retourne le nombre de lignes de la matrice.
+     *
+     * @return la hauteur de l'image.
+     */
+    public int getHauteur() {
+        return hauteur;
+    }
+
+    /**
+     * Retourne le nombre de colonnes de la matrice.
+     *
+     * @return la largeur de l'image.
+     */
+    public int getLargeur() {
+        return largeur;
+    }
+
+    /**
+     * Indique si la matrice ne contient aucun pixel.
+     *
+     * @return true si la matrice est vide, sinon false.
+     */
+    public boolean estVide() {
+        return hauteur == 0 || largeur == 0;
+    }
+
+    /**
+     * Retourne la valeur du pixel à la position spécifiée, sans conversion en objet.
+     *
+     * @param row la ligne du pixel.
+     * @param col la colonne du pixel.
+     * @return la valeur du pixel (0 à 255).
+     */
+    public int get(int row, int col) {
+        return pixels[row * largeur + col] & 0xFF;
+    }
+
+    /**
+     * Met à jour la valeur d'un pixel à la position spécifiée, sans conversion en objet.
+     *
+     * @param row   la ligne du pixel.
+     * @param col   la colonne du pixel.
+     * @param value la nouvelle valeur du pixel (0 à 255).
+     */
+    public void set(int row, int col, int value) {
+        pixels[row * largeur + col] = (byte) value;
     }
 
     /**
@@ -44,7 +185,7 @@ public class ImageMatrice {
      * @return la valeur du pixel.
      */
     public Integer getPixel(int row, int col) {
-        return this.image.get(row).get(col);
+        return get(row, col);
     }
 
     /**
@@ -55,15 +196,78 @@ public class ImageMatrice {
      * @param pixel la nouvelle valeur du pixel.
      */
     public void setPixel(int row, int col, Integer pixel) {
-        this.image.get(row).set(col, pixel);
+        set(row, col, pixel);
+    }
+
+    /**
+     * Copie une ligne de la matrice dans le tableau fourni.
+     *
+     * @param row         la ligne à lire.
+     * @param destination le tableau de destination, d'au moins {@code largeur} éléments.
+     * @return le tableau de destination.
+     */
+    public int[] getLigne(int row, int[] destination) {
+        int debut = row * largeur;
+        for (int col = 0; col < largeur; col++) {
+            destination[col] = pixels[debut + col] & 0xFF;
+        }
+        return destination;
+    }
+
+    /**
+     * Copie une colonne de la matrice dans le tableau fourni.
+     *
+     * @param col         la colonne à lire.
+     * @param destination le tableau de destination, d'au moins {@code hauteur} éléments.
+     * @return le tableau de destination.
+     */
+    public int[] getColonne(int col, int[] destination) {
+        for (int row = 0, indice = col; row < hauteur; row++, indice += largeur) {
+            destination[row] = pixels[indice] & 0xFF;
+        }
+        return destination;
+    }
+
+    /**
+     * Remplace tous les pixels par ceux du tableau fourni, rangés ligne par ligne.
+     *
+     * @param source les nouveaux pixels, de taille {@code hauteur * largeur}.
+     * @throws IllegalArgumentException Si la taille du tableau ne correspond pas aux dimensions.
+     */
+    public void copierDepuis(byte[] source) {
+        if (source.length != pixels.length) {
+            throw new IllegalArgumentException("Taille attendue : " + pixels.length + ", reçue : " + source.length);
+        }
+        System.arraycopy(source, 0, pixels, 0, pixels.length);
+    }
+
+    /**
+     * Copie tous les pixels, rangés ligne par ligne, dans le tableau fourni.
+     *
+     * @param destination le tableau de destination, d'au moins {@code hauteur * largeur} éléments.
+     * @return le tableau de destination.
+     */
+    public byte[] copierVers(byte[] destination) {
+        System.arraycopy(pixels, 0, destination, 0, pixels.length);
+        return destination;
+    }
+
+    /**
+     * Retourne une copie des pixels, rangés ligne par ligne.
+     *
+     * @return un nouveau tableau de {@code hauteur * largeur} pixels.
+     */
+    public byte[] toByteArray() {
+        return pixels.clone();
     }
 
     /**
      * Affiche la matrice de l'image dans la console.
      */
     public void printImage() {
-        for (ArrayList<Integer> row : this.image) {
-            System.out.println(row);
+        int[] ligne = new int[largeur];
+        for (int row = 0; row < hauteur; row++) {
+            System.out.println(Arrays.toString(getLigne(row, ligne)));
         }
     }
 }
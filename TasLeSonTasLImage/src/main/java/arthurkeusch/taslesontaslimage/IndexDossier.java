@@ -0,0 +1,328 @@
+package arthurkeusch.taslesontaslimage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Index des images d'un dossier, triées selon le nombre contenu dans leur nom.
+ * <p>
+ * Le dossier est parcouru une seule fois avec un {@link DirectoryStream} ; la clé de tri de chaque fichier
+ * est calculée à ce moment-là, et non à chaque comparaison. L'index ne conserve que les noms et les clés :
+ * les objets {@link File} ne sont créés qu'à la demande, ce qui reste léger pour des dossiers de plusieurs
+ * centaines de milliers d'images.
+ * <p>
+ * Une fois {@link #surveiller()} appelé, les images créées dans le dossier (par exemple par une extraction
+ * vidéo qui écrit dans {@code imagesVideo}) sont ajoutées à la fin de l'index, triées entre elles : les
+ * positions déjà attribuées ne changent jamais, ce qui garde valides les indices retenus par la lecture,
+ * le préchargement et les images affichées. Une image n'est ajoutée qu'une fois son écriture terminée,
+ * c'est-à-dire lorsque sa taille n'a plus changé pendant {@link #DELAI_STABILITE} millisecondes.
+ */
+public class IndexDossier extends AbstractList<File> implements RandomAccess, Closeable {
+
+    /**
+     * Motif des fichiers indexés.
+     */
+    private static final String MOTIF_IMAGES = "*.{png,jpg,jpeg}";
+
+    /**
+     * Durée (en millisecondes) sans modification après laquelle une image créée est considérée comme complète.
+     */
+    static final long DELAI_STABILITE = 250;
+
+    /**
+     * Un fichier de l'index.
+     *
+     * @param cle Le nombre contenu dans le nom du fichier.
+     * @param nom Le nom du fichier.
+     */
+    private record Entree(long cle, String nom) {
+    }
+
+    /**
+     * Une image créée dont l'écriture n'est peut-être pas terminée.
+     *
+     * @param taille  La taille du fichier au dernier contrôle, ou -1 s'il a changé depuis.
+     * @param instant L'instant (en nanosecondes, voir {@link System#nanoTime()}) du dernier changement constaté.
+     */
+    private record Attente(long taille, long instant) {
+    }
+
+    /**
+     * Ordre de l'index : par nombre, puis par nom pour départager les égalités.
+     */
+    private static final Comparator<Entree> ORDRE = Comparator.comparingLong(Entree::cle).thenComparing(Entree::nom);
+
+    /**
+     * Le dossier indexé.
+     */
+    private final Path dossier;
+
+    /**
+     * Reconnaît les noms des fichiers indexés.
+     */
+    private final PathMatcher filtre;
+
+    /**
+     * Les fichiers indexés, dans l'ordre de tri.
+     */
+    private final List<Entree> entrees = new ArrayList<>();
+
+    /**
+     * Les noms des fichiers indexés.
+     */
+    private final Set<String> noms = new HashSet<>();
+
+    /**
+     * Le service de surveillance du dossier, ou null s'il n'est pas surveillé.
+     */
+    private WatchService surveillance;
+
+    /**
+     * Constructeur de l'index. Le dossier n'est parcouru qu'au premier appel de {@link #indexer()}.
+     *
+     * @param dossier Le dossier à indexer.
+     */
+    public IndexDossier(Path dossier) {
+        this.dossier = dossier;
+        this.filtre = dossier.getFileSystem().getPathMatcher("glob:" + MOTIF_IMAGES);
+    }
+
+    /**
+     * Parcourt le dossier et construit l'index.
+     *
+     * @param dossier Le dossier à indexer.
+     * @return L'index du dossier.
+     * @throws IOException Si le dossier ne peut pas être parcouru.
+     */
+    public static IndexDossier ouvrir(File dossier) throws IOException {
+        IndexDossier index = new IndexDossier(dossier.toPath());
+        index.indexer();
+        return index;
+    }
+
+    /**
+     * Parcourt le dossier et ajoute à la fin de l'index, triées entre elles, les images qui n'y sont pas encore.
+     *
+     * @throws IOException Si le dossier ne peut pas être parcouru.
+     */
+    public void indexer() throws IOException {
+        List<Entree> nouvelles = new ArrayList<>();
+        for (String nom : parcourir()) {
+            nouvelles.add(new Entree(extraireNombre(nom), nom));
+        }
+        ajouter(nouvelles);
+    }
+
+    /**
+     * Démarre la surveillance du dossier : les images qui y sont créées sont ajoutées à la fin de l'index
+     * une fois leur écriture terminée.
+     *
+     * @throws IOException Si le dossier ne peut pas être surveillé.
+     */
+    public synchronized void surveiller() throws IOException {
+        if (surveillance != null) {
+            return;
+        }
+        surveillance = dossier.getFileSystem().newWatchService();
+        dossier.register(surveillance, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        WatchService service = surveillance;
+        Thread thread = new Thread(() -> recevoir(service), "surveillance-dossier");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Arrête la surveillance du dossier.
+     *
+     * @throws IOException Si le service de surveillance ne peut pas être fermé.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (surveillance != null) {
+            surveillance.close();
+            surveillance = null;
+        }
+    }
+
+    /**
+     * Retourne le fichier à la position demandée dans l'ordre de tri.
+     *
+     * @param indice La position du fichier.
+     * @return Le fichier.
+     */
+    @Override
+    public synchronized File get(int indice) {
+        return dossier.resolve(entrees.get(indice).nom()).toFile();
+    }
+
+    @Override
+    public synchronized int size() {
+        return entrees.size();
+    }
+
+    /**
+     * Extrait le nombre formé par les chiffres d'un nom de fichier, sans expression régulière.
+     *
+     * @param nom Le nom du fichier.
+     * @return Le nombre extrait, 0 si le nom ne contient aucun chiffre, ou {@link Integer#MAX_VALUE}
+     * s'il dépasse cette valeur.
+     */
+    static long extraireNombre(String nom) {
+        long nombre = 0;
+        for (int i = 0; i < nom.length(); i++) {
+            char c = nom.charAt(i);
+            if (c >= '0' && c <= '9') {
+                nombre = Math.min(Integer.MAX_VALUE, nombre * 10 + (c - '0'));
+            }
+        }
+        return nombre;
+    }
+
+    /**
+     * Retourne les noms des images du dossier.
+     *
+     * @return Les noms des fichiers images.
+     * @throws IOException Si le dossier ne peut pas être parcouru.
+     */
+    private List<String> parcourir() throws IOException {
+        List<String> trouves = new ArrayList<>();
+        try (DirectoryStream<Path> fichiers = Files.newDirectoryStream(dossier, MOTIF_IMAGES)) {
+            for (Path fichier : fichiers) {
+                if (Files.isRegularFile(fichier)) {
+                    trouves.add(fichier.getFileName().toString());
+                }
+            }
+        }
+        return trouves;
+    }
+
+    /**
+     * Ajoute à la fin de l'index, triés entre eux, les fichiers qui n'y sont pas encore.
+     *
+     * @param nouvelles Les fichiers à ajouter.
+     */
+    private void ajouter(List<Entree> nouvelles) {
+        nouvelles.sort(ORDRE);
+        synchronized (this) {
+            for (Entree entree : nouvelles) {
+                if (noms.add(entree.nom())) {
+                    entrees.add(entree);
+                }
+            }
+        }
+    }
+
+    /**
+     * Boucle du thread de surveillance : les images créées ou modifiées dans le dossier sont mises en attente,
+     * puis ajoutées à l'index une fois leur écriture terminée (voir {@link #admettre(Map)}).
+     * Si des événements ont été perdus, le dossier est parcouru à nouveau et les images absentes de l'index
+     * sont mises en attente.
+     *
+     * @param service Le service de surveillance.
+     */
+    private void recevoir(WatchService service) {
+        Map<String, Attente> enAttente = new HashMap<>();
+        try {
+            while (true) {
+                WatchKey cle = enAttente.isEmpty()
+                        ? service.take()
+                        : service.poll(DELAI_STABILITE, TimeUnit.MILLISECONDS);
+                if (cle != null) {
+                    long maintenant = System.nanoTime();
+                    for (WatchEvent<?> evenement : cle.pollEvents()) {
+                        if (evenement.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            for (String nom : parcourir()) {
+                                mettreEnAttente(enAttente, nom, maintenant);
+                            }
+                        } else if (evenement.context() instanceof Path nom && filtre.matches(nom)) {
+                            mettreEnAttente(enAttente, nom.toString(), maintenant);
+                        }
+                    }
+                    if (!cle.reset()) {
+                        return;
+                    }
+                }
+                admettre(enAttente);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Surveillance arrêtée.
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Met une image en attente, si elle n'est pas déjà dans l'index.
+     *
+     * @param enAttente  Les images en attente, par nom.
+     * @param nom        Le nom de l'image.
+     * @param maintenant L'instant de l'événement (en nanosecondes).
+     */
+    private void mettreEnAttente(Map<String, Attente> enAttente, String nom, long maintenant) {
+        synchronized (this) {
+            if (noms.contains(nom)) {
+                return;
+            }
+        }
+        enAttente.put(nom, new Attente(-1, maintenant));
+    }
+
+    /**
+     * Ajoute à l'index les images en attente dont la taille, non nulle, n'a pas changé depuis le contrôle
+     * précédent, lui-même postérieur d'au moins {@link #DELAI_STABILITE} au dernier événement.
+     * Les images supprimées entre-temps sont oubliées.
+     *
+     * @param enAttente Les images en attente, par nom.
+     */
+    private void admettre(Map<String, Attente> enAttente) {
+        long maintenant = System.nanoTime();
+        List<Entree> completes = new ArrayList<>();
+        Iterator<Map.Entry<String, Attente>> attentes = enAttente.entrySet().iterator();
+        while (attentes.hasNext()) {
+            Map.Entry<String, Attente> attente = attentes.next();
+            if (maintenant - attente.getValue().instant() < TimeUnit.MILLISECONDS.toNanos(DELAI_STABILITE)) {
+                continue;
+            }
+            Path fichier = dossier.resolve(attente.getKey());
+            long taille;
+            try {
+                taille = Files.isRegularFile(fichier) ? Files.size(fichier) : -1;
+            } catch (IOException e) {
+                taille = -1;
+            }
+            if (taille < 0) {
+                attentes.remove();
+            } else if (taille > 0 && taille == attente.getValue().taille()) {
+                completes.add(new Entree(extraireNombre(attente.getKey()), attente.getKey()));
+                attentes.remove();
+            } else {
+                attente.setValue(new Attente(taille, maintenant));
+            }
+        }
+        if (!completes.isEmpty()) {
+            ajouter(completes);
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package arthurkeusch.taslesontaslimage;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mesure de la durée de chaque étape de la transformation des images en son.
+ * <p>
+ * Chaque étape est encadrée par {@link #debut()} et {@link #fin(EvenementEtape, Etape, int, long)}, qui
+ * alimentent à la fois un événement JFR ({@link EvenementEtape}) et un registre interne : un histogramme
+ * des durées et des compteurs par étape, dont {@link #resume()} donne la médiane, le 99e centile et le maximum.
+ * <p>
+ * Les étapes qui ne connaissent pas l'image qu'elles traitent (décodage, réduction, synthèse, écriture sur
+ * la ligne) sont terminées par {@link #fin(EvenementEtape, Etape, long)} : l'indice enregistré est alors
+ * celui que le thread de lecture ou de préchargement a déclaré avec {@link #imageCourante(int)}.
+ * <p>
+ * L'histogramme range les durées dans des classes dont la largeur double toutes les huit classes :
+ * l'enregistrement d'une mesure ne coûte que quelques incréments atomiques et aucune allocation,
+ * pour une précision d'environ 12 % sur les centiles. Le registre peut être désactivé avec
+ * {@code -Dtaslesontaslimage.mesures=false}.
+ */
+public final class Mesures {
+
+    /**
+     * Indique si le registre interne est alimenté.
+     */
+    private static final boolean ACTIVES = Boolean.parseBoolean(System.getProperty("taslesontaslimage.mesures", "true"));
+
+    /**
+     * Nombre de classes de l'histogramme par puissance de deux.
+     */
+    private static final int SOUS_CLASSES = 8;
+
+    /**
+     * Nombre de classes de l'histogramme, jusqu'à {@link Long#MAX_VALUE} nanosecondes.
+     */
+    private static final int NOMBRE_CLASSES = classe(Long.MAX_VALUE) + 1;
+
+    /**
+     * Indice de l'image traitée par chaque thread (voir {@link #imageCourante(int)}), ou -1.
+     */
+    private static final ThreadLocal<int[]> IMAGE_COURANTE = ThreadLocal.withInitial(() -> new int[]{-1});
+
+    /**
+     * L'histogramme de chaque étape, par ordinal.
+     */
+    private static final Histogramme[] HISTOGRAMMES = new Histogramme[Etape.values().length];
+
+    static {
+        for (int i = 0; i < HISTOGRAMMES.length; i++) {
+            HISTOGRAMMES[i] = new Histogramme();
+        }
+    }
+
+    private Mesures() {
+    }
+
+    /**
+     * Marque le début d'une étape.
+     *
+     * @return L'événement à passer à {@link #fin(EvenementEtape, Etape, int, long)}.
+     */
+    public static EvenementEtape debut() {
+        EvenementEtape evenement = new EvenementEtape();
+        if (ACTIVES) {
+            evenement.debut = System.nanoTime();
+        }
+        evenement.begin();
+        return evenement;
+    }
+
+    /**
+     * Marque la fin d'une étape : enregistre sa durée et émet l'événement JFR s'il est activé.
+     *
+     * @param evenement L'événement retourné par {@link #debut()}.
+     * @param etape     L'étape mesurée.
+     * @param indice    Indice de l'image traitée, ou -1 s'il n'est pas connu.
+     * @param octets    Nombre d'octets traités ou produits par l'étape.
+     */
+    public static void fin(EvenementEtape evenement, Etape etape, int indice, long octets) {
+        evenement.end();
+        if (ACTIVES) {
+            HISTOGRAMMES[etape.ordinal()].enregistrer(System.nanoTime() - evenement.debut, octets);
+        }
+        if (evenement.shouldCommit()) {
+            evenement.etape = etape.getLibelle();
+            evenement.indice = indice;
+            evenement.octets = octets;
+            evenement.commit();
+        }
+    }
+
+    /**
+     * Marque la fin d'une étape portant sur l'image déclarée par le thread courant
+     * (voir {@link #imageCourante(int)}).
+     *
+     * @param evenement L'événement retourné par {@link #debut()}.
+     * @param etape     L'étape mesurée.
+     * @param octets    Nombre d'octets traités ou produits par l'étape.
+     */
+    public static void fin(EvenementEtape evenement, Etape etape, long octets) {
+        fin(evenement, etape, IMAGE_COURANTE.get()[0], octets);
+    }
+
+    /**
+     * Déclare l'image traitée par le thread courant, attribuée aux étapes terminées par
+     * {@link #fin(EvenementEtape, Etape, long)} jusqu'à la prochaine déclaration.
+     *
+     * @param indice Indice de l'image, ou -1 si le thread ne traite plus d'image connue.
+     * @return L'indice déclaré auparavant, à rétablir une fois le traitement de l'image terminé.
+     */
+    public static int imageCourante(int indice) {
+        int[] courante = IMAGE_COURANTE.get();
+        int precedente = courante[0];
+        courante[0] = indice;
+        return precedente;
+    }
+
+    /**
+     * Retourne le nombre de mesures enregistrées pour une étape.
+     *
+     * @param etape L'étape.
+     * @return Le nombre de mesures.
+     */
+    public static long getNombre(Etape etape) {
+        return HISTOGRAMMES[etape.ordinal()].nombre.sum();
+    }
+
+    /**
+     * Retourne une estimation d'un centile des durées d'une étape.
+     *
+     * @param etape L'étape.
+     * @param q     Le centile, entre 0 et 1 (0.5 pour la médiane).
+     * @return La durée (en nanosecondes), ou 0 si aucune mesure n'a été enregistrée.
+     * @throws IllegalArgumentException Si le centile n'est pas compris entre 0 et 1.
+     */
+    public static long centile(Etape etape, double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Centile invalide : " + q);
+        }
+        return HISTOGRAMMES[etape.ordinal()].centile(q);
+    }
+
+    /**
+     * Efface toutes les mesures enregistrées.
+     */
+    public static void reinitialiser() {
+        for (Histogramme histogramme : HISTOGRAMMES) {
+            histogramme.reinitialiser();
+        }
+    }
+
+    /**
+     * Retourne un résumé des mesures : pour chaque étape mesurée au moins une fois, le nombre de mesures,
+     * la médiane, le 99e centile et le maximum des durées, ainsi que le volume traité.
+     *
+     * @return Le résumé, une ligne par étape.
+     */
+    public static String resume() {
+        StringBuilder resume = new StringBuilder();
+        resume.append(String.format(Locale.ROOT, "%-22s %10s %10s %10s %10s %12s%n",
+                "étape", "nombre", "p50 (ms)", "p99 (ms)", "max (ms)", "octets"));
+        for (Etape etape : Etape.values()) {
+            Histogramme histogramme = HISTOGRAMMES[etape.ordinal()];
+            long nombre = histogramme.nombre.sum();
+            if (nombre == 0) {
+                continue;
+            }
+            resume.append(String.format(Locale.ROOT, "%-22s %10d %10.3f %10.3f %10.3f %12d%n",
+                    etape.getLibelle(), nombre, histogramme.centile(0.5) / 1e6, histogramme.centile(0.99) / 1e6,
+                    histogramme.maximum.get() / 1e6, histogramme.octets.sum()));
+        }
+        return resume.toString();
+    }
+
+    /**
+     * Calcule la classe d'une durée : les durées inférieures à {@link #SOUS_CLASSES} ont chacune leur classe,
+     * puis chaque puissance de deux est découpée en {@link #SOUS_CLASSES} classes de même largeur.
+     *
+     * @param nanos La durée (en nanosecondes), positive.
+     * @return L'indice de la classe.
+     */
+    static int classe(long nanos) {
+        if (nanos < SOUS_CLASSES) {
+            return (int) Math.max(0, nanos);
+        }
+        int exposant = 63 - Long.numberOfLeadingZeros(nanos);
+        int mantisse = (int) (nanos >>> (exposant - 3)) & (SOUS_CLASSES - 1);
+        return (exposant - 2) * SOUS_CLASSES + mantisse;
+    }
+
+    /**
+     * Retourne le milieu de l'intervalle des durées d'une classe.
+     *
+     * @param classe L'indice de la classe.
+     * @return La durée représentative de la classe (en nanosecondes).
+     */
+    static long valeurClasse(int classe) {
+        if (classe < SOUS_CLASSES) {
+            return classe;
+        }
+        int exposant = classe / SOUS_CLASSES + 2;
+        long largeur = 1L << (exposant - 3);
+        long debut = (SOUS_CLASSES + classe % SOUS_CLASSES) * largeur;
+        return debut + largeur / 2;
+    }
+
+    /**
+     * Histogramme des durées d'une étape, alimenté sans verrou.
+     */
+    private static final class Histogramme {
+
+        /**
+         * Nombre de mesures dans chaque classe.
+         */
+        private final AtomicLongArray classes = new AtomicLongArray(NOMBRE_CLASSES);
+
+        /**
+         * Nombre total de mesures.
+         */
+        private final LongAdder nombre = new LongAdder();
+
+        /**
+         * Nombre total d'octets traités.
+         */
+        private final LongAdder octets = new LongAdder();
+
+        /**
+         * Durée maximale mesurée (en nanosecondes).
+         */
+        private final AtomicLong maximum = new AtomicLong();
+
+        /**
+         * Enregistre une mesure.
+         *
+         * @param nanos  La durée (en nanosecondes).
+         * @param taille Le nombre d'octets traités.
+         */
+        void enregistrer(long nanos, long taille) {
+            classes.incrementAndGet(classe(nanos));
+            nombre.increment();
+            octets.add(taille);
+            maximum.accumulateAndGet(nanos, Math::max);
+        }
+
+        /**
+         * Estime un centile des durées à partir des classes.
+         *
+         * @param q Le centile, entre 0 et 1.
+         * @return La durée (en nanosecondes), ou 0 si l'histogramme est vide.
+         */
+        long centile(double q) {
+            long[] copie = new long[NOMBRE_CLASSES];
+            long total = 0;
+            for (int i = 0; i < NOMBRE_CLASSES; i++) {
+                copie[i] = classes.get(i);
+                total += copie[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rang = Math.max(1, (long) Math.ceil(q * total));
+            long cumul = 0;
+            for (int i = 0; i < NOMBRE_CLASSES; i++) {
+                cumul += copie[i];
+                if (cumul >= rang) {
+                    return Math.min(valeurClasse(i), maximum.get());
+                }
+            }
+            return maximum.get();
+        }
+
+        /**
+         * Efface les mesures.
+         */
+        void reinitialiser() {
+            for (int i = 0; i < NOMBRE_CLASSES; i++) {
+                classes.set(i, 0);
+            }
+            nombre.reset();
+            octets.reset();
+            maximum.set(0);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package arthurkeusch.taslesontaslimage;
+
+import javax.sound.sampled.AudioFormat;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Mixeur logiciel : ajoute des clips (voix) au flux principal, chacun avec son propre gain.
+ * <p>
+ * Les positions sont exprimées en trames depuis l'ouverture du flux. Chaque voix commence à une position
+ * donnée et est ajoutée aux échantillons du flux bloc par bloc, juste avant leur transmission à la ligne ;
+ * une voix terminée est retirée. Les échantillons mixés sont limités à la plage du format, sans normalisation.
+ * Seuls les formats PCM signés sur 8 ou 16 bits sont pris en charge ; une voix est jouée sur tous les canaux.
+ */
+public class MixeurAudio {
+
+    /**
+     * Un clip en cours de lecture.
+     *
+     * @param clip  Le clip, au taux d'échantillonnage du flux.
+     * @param gain  Le gain appliqué aux échantillons du clip.
+     * @param debut La position (en trames) du premier échantillon du clip dans le flux.
+     */
+    private record Voix(ClipAudio clip, double gain, long debut) {
+
+        /**
+         * Retourne la position suivant le dernier échantillon du clip.
+         *
+         * @return La position de fin (en trames).
+         */
+        long fin() {
+            return debut + clip.getLongueur();
+        }
+    }
+
+    /**
+     * Nombre d'octets par échantillon d'un canal (1 ou 2).
+     */
+    private final int octetsParEchantillon;
+
+    /**
+     * Nombre de canaux du flux.
+     */
+    private final int canaux;
+
+    /**
+     * Indique si les échantillons sur 16 bits sont gros-boutistes.
+     */
+    private final boolean grosBoutiste;
+
+    /**
+     * Les voix programmées ou en cours de lecture.
+     */
+    private final List<Voix> voix = new ArrayList<>();
+
+    /**
+     * Constructeur du mixeur.
+     *
+     * @param format Le format des échantillons du flux.
+     * @throws IllegalArgumentException Si le format n'est pas du PCM signé sur 8 ou 16 bits.
+     */
+    public MixeurAudio(AudioFormat format) {
+        if (format.getEncoding() != AudioFormat.Encoding.PCM_SIGNED
+                || (format.getSampleSizeInBits() != 8 && format.getSampleSizeInBits() != 16)) {
+            throw new IllegalArgumentException("Format non pris en charge par le mixeur : " + format);
+        }
+        this.octetsParEchantillon = format.getSampleSizeInBits() / 8;
+        this.canaux = Math.max(1, format.getChannels());
+        this.grosBoutiste = format.isBigEndian();
+    }
+
+    /**
+     * Programme la lecture d'un clip.
+     *
+     * @param clip  Le clip, au taux d'échantillonnage du flux.
+     * @param gain  Le gain appliqué au clip (1 pour le niveau d'origine).
+     * @param debut La position (en trames) à laquelle le clip commence.
+     */
+    public synchronized void ajouter(ClipAudio clip, double gain, long debut) {
+        if (clip.getLongueur() > 0) {
+            voix.add(new Voix(clip, gain, debut));
+        }
+    }
+
+    /**
+     * Retire toutes les voix.
+     */
+    public synchronized void vider() {
+        voix.clear();
+    }
+
+    /**
+     * Indique si une voix doit encore être jouée à partir d'une position.
+     *
+     * @param position La position (en trames).
+     * @return true si une voix a commencé ou commence à cette position et n'est pas terminée.
+     */
+    public synchronized boolean estActif(long position) {
+        for (Voix v : voix) {
+            if (v.debut() <= position && position < v.fin()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Retourne le nombre de trames qui restent à jouer à partir d'une position, pour la voix qui finit le plus tard.
+     *
+     * @param position La position (en trames).
+     * @return Le nombre de trames restantes, ou 0 si aucune voix n'est active.
+     */
+    public synchronized long restant(long position) {
+        long fin = position;
+        for (Voix v : voix) {
+            if (v.debut() <= position) {
+                fin = Math.max(fin, v.fin());
+            }
+        }
+        return fin - position;
+    }
+
+    /**
+     * Ajoute les voix actives à un bloc d'échantillons du flux et retire les voix terminées.
+     *
+     * @param bloc     Les échantillons du flux, modifiés en place.
+     * @param offset   Position du premier octet du bloc.
+     * @param trames   Nombre de trames du bloc.
+     * @param position Position (en trames) de la première trame du bloc dans le flux.
+     */
+    public synchronized void mixer(byte[] bloc, int offset, int trames, long position) {
+        long finBloc = position + trames;
+        Iterator<Voix> iterateur = voix.iterator();
+        while (iterateur.hasNext()) {
+            Voix v = iterateur.next();
+            long premiere = Math.max(position, v.debut());
+            long derniere = Math.min(finBloc, v.fin());
+            for (long t = premiere; t < derniere; t++) {
+                double echantillon = v.gain() * v.clip().getEchantillon((int) (t - v.debut()));
+                int indice = offset + (int) (t - position) * canaux * octetsParEchantillon;
+                for (int c = 0; c < canaux; c++, indice += octetsParEchantillon) {
+                    ajouterEchantillon(bloc, indice, echantillon);
+                }
+            }
+            if (v.fin() <= finBloc) {
+                iterateur.remove();
+            }
+        }
+    }
+
+    /**
+     * Ajoute un échantillon à celui du flux, en limitant le résultat à la plage du format.
+     *
+     * @param bloc        Les échantillons du flux.
+     * @param indice      Position du premier octet de l'échantillon.
+     * @param echantillon L'échantillon à ajouter, dans l'intervalle [-1, 1].
+     */
+    private void ajouterEchantillon(byte[] bloc, int indice, double echantillon) {
+        if (octetsParEchantillon == 1) {
+            double valeur = bloc[indice] / 127.0 + echantillon;
+            bloc[indice] = (byte) (Math.max(-1.0, Math.min(1.0, valeur)) * 127);
+            return;
+        }
+        int fort = grosBoutiste ? indice : indice + 1;
+        int faible = grosBoutiste ? indice + 1 : indice;
+        short existant = (short) ((bloc[fort] << 8) | (bloc[faible] & 0xFF));
+        double valeur = existant / 32767.0 + echantillon;
+        short resultat = (short) (Math.max(-1.0, Math.min(1.0, valeur)) * 32767);
+        bloc[fort] = (byte) (resultat >> 8);
+        bloc[faible] = (byte) resultat;
+    }
+}
@@ -0,0 +1,55 @@
+package arthurkeusch.taslesontaslimage;
+
+/**
+ * Moteur de synthèse : transforme les colonnes d'une matrice d'image en échantillons audio.
+ * Les implémentations ne conservent aucun état entre deux appels et peuvent être partagées entre threads ;
+ * seul un {@link RenduProgressif} porte l'état d'un rendu en cours, et n'appartient qu'à son appelant.
+ */
+public interface MoteurSynthese {
+
+    /**
+     * Calcule les échantillons des colonnes {@code colDebut} (incluse) à {@code colFin} (exclue).
+     * Les échantillons ne sont pas limités à l'intervalle [-1, 1].
+     *
+     * @param image    La matrice dont chaque pixel donne l'amplitude d'une ligne.
+     * @param colDebut La première colonne à calculer.
+     * @param colFin   La colonne suivant la dernière colonne à calculer.
+     * @param sortie   Le tableau recevant {@code (colFin - colDebut) * samplesPerFrame} échantillons.
+     * @param offset   Position du premier échantillon écrit.
+     */
+    void rendreColonnes(ImageMatrice image, int colDebut, int colFin, double[] sortie, int offset);
+
+    /**
+     * Commence le rendu progressif d'une image : ses colonnes sont ensuite calculées une à une, dans l'ordre,
+     * avec {@link RenduProgressif#colonneSuivante(double[], int)}, pour être jouées au fur et à mesure.
+     * Les échantillons obtenus sont identiques à ceux de {@link #rendreColonnes(ImageMatrice, int, int, double[], int)}
+     * sur toute l'image.
+     * <p>
+     * Par défaut, chaque colonne est calculée indépendamment des autres.
+     *
+     * @param image La matrice dont chaque pixel donne l'amplitude d'une ligne.
+     * @return Le rendu, positionné sur la première colonne.
+     */
+    default RenduProgressif rendreProgressivement(ImageMatrice image) {
+        int[] colonne = {0};
+        return (sortie, offset) -> {
+            rendreColonnes(image, colonne[0], colonne[0] + 1, sortie, offset);
+            colonne[0]++;
+        };
+    }
+
+    /**
+     * Rendu d'une image colonne par colonne, commencé par {@link #rendreProgressivement(ImageMatrice)}.
+     * Il n'est pas partagé entre threads.
+     */
+    interface RenduProgressif {
+
+        /**
+         * Calcule les échantillons de la colonne suivante.
+         *
+         * @param sortie Le tableau recevant les {@code samplesPerFrame} échantillons (non limités).
+         * @param offset Position du premier échantillon écrit.
+         */
+        void colonneSuivante(double[] sortie, int offset);
+    }
+}
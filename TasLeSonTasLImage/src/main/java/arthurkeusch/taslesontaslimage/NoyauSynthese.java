@@ -0,0 +1,132 @@
+package arthurkeusch.taslesontaslimage;
+
+/**
+ * Boucles de calcul élémentaires de la synthèse audio.
+ * <p>
+ * Chaque sinusoïde est produite par un oscillateur à rotation de phase plutôt que lue dans une table :
+ * les échantillons sont traités par blocs de {@link #LARGEUR_BLOC}, chaque position du bloc possède
+ * son propre couple (sinus, cosinus), déduit de la phase de départ par un déphasage fixe, puis tourné
+ * d'un bloc à l'autre.
+ * <p>
+ * Lorsque le module {@code jdk.incubator.vector} est disponible (option {@code --add-modules jdk.incubator.vector}),
+ * les calculs sont délégués à {@link NoyauVectoriel}, qui produit exactement les mêmes échantillons.
+ */
+final class NoyauSynthese {
+
+    /**
+     * Nombre d'échantillons calculés en parallèle par l'oscillateur.
+     */
+    static final int LARGEUR_BLOC = 8;
+
+    /**
+     * Indique si la version vectorisée des calculs est utilisée.
+     */
+    static final boolean VECTORIEL = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+            && !Boolean.getBoolean("taslesontaslimage.scalaire");
+
+    private NoyauSynthese() {
+    }
+
+    /**
+     * Ajoute une sinusoïde d'amplitude constante aux échantillons fournis :
+     * {@code sortie[offset + n] += amplitude * sin(phase + n * omega)}, où {@code omega} est la pulsation
+     * (en radians par échantillon) de la sinusoïde.
+     *
+     * @param sortie    Les échantillons à compléter.
+     * @param offset    Position du premier échantillon.
+     * @param longueur  Nombre d'échantillons.
+     * @param amplitude Amplitude de la sinusoïde.
+     * @param phase     Phase (en radians) du premier échantillon.
+     * @param cosVoies  Cosinus de {@code j * omega} pour chaque position {@code j} d'un bloc.
+     * @param sinVoies  Sinus de {@code j * omega} pour chaque position {@code j} d'un bloc.
+     * @param cosBloc   Cosinus de {@code LARGEUR_BLOC * omega}.
+     * @param sinBloc   Sinus de {@code LARGEUR_BLOC * omega}.
+     */
+    static void ajouterSinusoide(double[] sortie, int offset, int longueur, double amplitude,
+                                 double phase, double[] cosVoies, double[] sinVoies,
+                                 double cosBloc, double sinBloc) {
+        if (VECTORIEL) {
+            NoyauVectoriel.ajouterSinusoide(sortie, offset, longueur, amplitude,
+                    phase, cosVoies, sinVoies, cosBloc, sinBloc);
+        } else {
+            ajouterSinusoideScalaire(sortie, offset, longueur, amplitude,
+                    phase, cosVoies, sinVoies, cosBloc, sinBloc);
+        }
+    }
+
+    /**
+     * Version scalaire de
+     * {@link #ajouterSinusoide(double[], int, int, double, double, double[], double[], double, double)},
+     * qui sert aussi de référence à {@link NoyauVectoriel}.
+     */
+    static void ajouterSinusoideScalaire(double[] sortie, int offset, int longueur, double amplitude,
+                                         double phase, double[] cosVoies, double[] sinVoies,
+                                         double cosBloc, double sinBloc) {
+        double[] sinus = new double[LARGEUR_BLOC];
+        double[] cosinus = new double[LARGEUR_BLOC];
+        double sinPhase = Math.sin(phase);
+        double cosPhase = Math.cos(phase);
+        for (int j = 0; j < LARGEUR_BLOC; j++) {
+            sinus[j] = sinPhase * cosVoies[j] + cosPhase * sinVoies[j];
+            cosinus[j] = cosPhase * cosVoies[j] - sinPhase * sinVoies[j];
+        }
+
+        for (int debut = 0; debut < longueur; debut += LARGEUR_BLOC) {
+            int taille = Math.min(LARGEUR_BLOC, longueur - debut);
+            for (int j = 0; j < taille; j++) {
+                sortie[offset + debut + j] += amplitude * sinus[j];
+            }
+            for (int j = 0; j < LARGEUR_BLOC; j++) {
+                double s = sinus[j];
+                double c = cosinus[j];
+                sinus[j] = s * cosBloc + c * sinBloc;
+                cosinus[j] = c * cosBloc - s * sinBloc;
+            }
+        }
+    }
+
+    /**
+     * Limite les échantillons à l'intervalle [-1, 1] et les convertit en échantillons signés sur 8 bits.
+     *
+     * @param source       Les échantillons à convertir.
+     * @param offset       Position du premier échantillon à convertir.
+     * @param destination  Le tableau recevant les échantillons 8 bits.
+     * @param offsetSortie Position du premier échantillon écrit.
+     * @param longueur     Nombre d'échantillons.
+     */
+    static void convertirEn8Bits(double[] source, int offset, byte[] destination, int offsetSortie, int longueur) {
+        if (VECTORIEL) {
+            NoyauVectoriel.convertirEn8Bits(source, offset, destination, offsetSortie, longueur);
+        } else {
+            convertirEn8BitsScalaire(source, offset, destination, offsetSortie, longueur);
+        }
+    }
+
+    /**
+     * Version scalaire de {@link #convertirEn8Bits(double[], int, byte[], int, int)},
+     * qui sert aussi de référence à {@link NoyauVectoriel}.
+     */
+    static void convertirEn8BitsScalaire(double[] source, int offset, byte[] destination, int offsetSortie,
+                                         int longueur) {
+        for (int i = 0; i < longueur; i++) {
+            double valeur = Math.max(-1.0, Math.min(1.0, source[offset + i]));
+            destination[offsetSortie + i] = (byte) (valeur * 127);
+        }
+    }
+
+    /**
+     * Limite les échantillons à l'intervalle [-1, 1] et les convertit en échantillons signés sur 16 bits.
+     *
+     * @param source       Les échantillons à convertir.
+     * @param offset       Position du premier échantillon à convertir.
+     * @param destination  Le tableau recevant les échantillons 16 bits.
+     * @param offsetSortie Position du premier échantillon écrit.
+     * @param longueur     Nombre d'échantillons.
+     */
+    static void convertirEn16Bits(double[] source, int offset, short[] destination, int offsetSortie, int longueur) {
+        for (int i = 0; i < longueur; i++) {
+            double valeur = Math.max(-1.0, Math.min(1.0, source[offset + i]));
+            destination[offsetSortie + i] = (short) (valeur * 32767);
+        }
+    }
+}
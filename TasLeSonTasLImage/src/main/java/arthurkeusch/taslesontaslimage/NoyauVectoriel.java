@@ -0,0 +1,87 @@
+package arthurkeusch.taslesontaslimage;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Version vectorisée (API {@code jdk.incubator.vector}) des boucles de {@link NoyauSynthese}.
+ * <p>
+ * Cette classe n'est chargée que si le module est présent au démarrage. Les opérations effectuées sur
+ * chaque échantillon sont exactement celles de la version scalaire, dans le même ordre et sans fusion
+ * multiplication-addition : les résultats sont identiques au bit près.
+ */
+final class NoyauVectoriel {
+
+    /**
+     * Espèce de vecteur utilisée : la plus large possible dont la taille divise la largeur d'un bloc.
+     */
+    private static final VectorSpecies<Double> ESPECE =
+            DoubleVector.SPECIES_PREFERRED.length() <= NoyauSynthese.LARGEUR_BLOC
+                    && NoyauSynthese.LARGEUR_BLOC % DoubleVector.SPECIES_PREFERRED.length() == 0
+                    ? DoubleVector.SPECIES_PREFERRED
+                    : DoubleVector.SPECIES_512;
+
+    private NoyauVectoriel() {
+    }
+
+    /**
+     * Voir {@link NoyauSynthese#ajouterSinusoide(double[], int, int, double, double, double[], double[], double, double)}.
+     */
+    static void ajouterSinusoide(double[] sortie, int offset, int longueur, double amplitude,
+                                 double phase, double[] cosVoies, double[] sinVoies,
+                                 double cosBloc, double sinBloc) {
+        int largeurBloc = NoyauSynthese.LARGEUR_BLOC;
+        double[] sinus = new double[largeurBloc];
+        double[] cosinus = new double[largeurBloc];
+        double sinPhase = Math.sin(phase);
+        double cosPhase = Math.cos(phase);
+        for (int j = 0; j < largeurBloc; j++) {
+            sinus[j] = sinPhase * cosVoies[j] + cosPhase * sinVoies[j];
+            cosinus[j] = cosPhase * cosVoies[j] - sinPhase * sinVoies[j];
+        }
+
+        for (int voie = 0; voie < largeurBloc; voie += ESPECE.length()) {
+            DoubleVector s = DoubleVector.fromArray(ESPECE, sinus, voie);
+            DoubleVector c = DoubleVector.fromArray(ESPECE, cosinus, voie);
+            for (int debut = voie; debut < longueur; debut += largeurBloc) {
+                int indice = offset + debut;
+                if (debut + ESPECE.length() <= longueur) {
+                    DoubleVector.fromArray(ESPECE, sortie, indice)
+                            .add(s.mul(amplitude))
+                            .intoArray(sortie, indice);
+                } else {
+                    VectorMask<Double> masque = ESPECE.indexInRange(debut, longueur);
+                    DoubleVector.fromArray(ESPECE, sortie, indice, masque)
+                            .add(s.mul(amplitude))
+                            .intoArray(sortie, indice, masque);
+                }
+                DoubleVector suivant = s.mul(cosBloc).add(c.mul(sinBloc));
+                c = c.mul(cosBloc).sub(s.mul(sinBloc));
+                s = suivant;
+            }
+        }
+    }
+
+    /**
+     * Voir {@link NoyauSynthese#convertirEn8Bits(double[], int, byte[], int, int)}.
+     */
+    static void convertirEn8Bits(double[] source, int offset, byte[] destination, int offsetSortie, int longueur) {
+        double[] limites = new double[ESPECE.length()];
+        int i = 0;
+        for (; i <= longueur - ESPECE.length(); i += ESPECE.length()) {
+            DoubleVector.fromArray(ESPECE, source, offset + i)
+                    .min(1.0)
+                    .max(-1.0)
+                    .mul(127)
+                    .intoArray(limites, 0);
+            for (int j = 0; j < limites.length; j++) {
+                destination[offsetSortie + i + j] = (byte) limites[j];
+            }
+        }
+        for (; i < longueur; i++) {
+            double valeur = Math.max(-1.0, Math.min(1.0, source[offset + i]));
+            destination[offsetSortie + i] = (byte) (valeur * 127);
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package arthurkeusch.taslesontaslimage;
+
+import org.opencv.core.Mat;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Extraction des images d'une vidéo en mémoire, sans passer par des fichiers temporaires.
+ * <p>
+ * Les échantillons de la vidéo sont découpés en petits blocs consécutifs, distribués dans l'ordre à plusieurs
+ * producteurs. Chaque producteur décode son bloc et transforme directement chaque image décodée en
+ * {@link FrameVideo} : matrice compressée pour la synthèse et image réduite pour l'affichage.
+ * Les images passent ensuite par une file bornée jusqu'au consommateur, qui les remet dans l'ordre
+ * avant de les transmettre.
+ * <p>
+ * Le décodage ne prend jamais plus de {@code fenetre} échantillons d'avance sur la dernière image transmise :
+ * si le consommateur ralentit, les producteurs attendent. L'enregistrement des images sur le disque reste
+ * possible, en option.
+ */
+public class PipelineVideo {
+
+    /**
+     * Un élément de la file : une image extraite, ou la fin du traitement d'un bloc d'échantillons.
+     *
+     * @param debut Premier échantillon concerné.
+     * @param fin   Indice suivant le dernier échantillon concerné.
+     * @param frame L'image extraite, ou null si le message signale la fin d'un bloc.
+     */
+    private record Message(int debut, int fin, FrameVideo frame) {
+    }
+
+    /**
+     * Marqueur placé dans la file par chaque producteur lorsqu'il a terminé.
+     */
+    private static final Message FIN = new Message(-1, -1, null);
+
+    /**
+     * L'objet responsable du traitement vidéo.
+     */
+    private final TraitementVideo traitementVideo;
+
+    /**
+     * Nombre maximal d'images en attente entre les producteurs et le consommateur.
+     */
+    private final int capaciteFile;
+
+    /**
+     * Avance maximale (en échantillons) du décodage sur la dernière image transmise au consommateur.
+     */
+    private final int fenetre;
+
+    /**
+     * Dossier dans lequel les images sont aussi enregistrées en JPEG, ou null pour ne rien écrire.
+     */
+    private final String dossierSauvegarde;
+
+    /**
+     * Constructeur du pipeline, sans enregistrement des images sur le disque.
+     *
+     * @param traitementVideo L'objet responsable du traitement vidéo.
+     * @param capaciteFile    Nombre maximal d'images en attente entre les producteurs et le consommateur.
+     * @param fenetre         Avance maximale (en échantillons) du décodage sur la dernière image transmise.
+     */
+    public PipelineVideo(TraitementVideo traitementVideo, int capaciteFile, int fenetre) {
+        this(traitementVideo, capaciteFile, fenetre, null);
+    }
+
+    /**
+     * Constructeur du pipeline.
+     *
+     * @param traitementVideo   L'objet responsable du traitement vidéo.
+     * @param capaciteFile      Nombre maximal d'images en attente entre les producteurs et le consommateur.
+     * @param fenetre           Avance maximale (en échantillons) du décodage sur la dernière image transmise.
+     * @param dossierSauvegarde Dossier dans lequel les images sont aussi enregistrées en JPEG,
+     *                          ou null pour ne rien écrire sur le disque.
+     * @throws IllegalArgumentException Si la capacité de la file ou la fenêtre n'est pas strictement positive.
+     */
+    public PipelineVideo(TraitementVideo traitementVideo, int capaciteFile, int fenetre, String dossierSauvegarde) {
+        if (capaciteFile <= 0) {
+            throw new IllegalArgumentException("Capacité de file invalide : " + capaciteFile);
+        }
+        if (fenetre <= 0) {
+            throw new IllegalArgumentException("Fenêtre de décodage invalide : " + fenetre);
+        }
+        this.traitementVideo = traitementVideo;
+        this.capaciteFile = capaciteFile;
+        this.fenetre = fenetre;
+        this.dossierSauvegarde = dossierSauvegarde;
+    }
+
+    /**
+     * Extrait les échantillons de la vidéo et les transmet au consommateur, dans le thread appelant
+     * et dans l'ordre. Les échantillons pour lesquels aucune image n'a pu être décodée sont sautés.
+     * <p>
+     * Bloque jusqu'à la fin de l'extraction ; le consommateur peut lui-même bloquer pour ralentir le décodage.
+     * Si le thread appelant est interrompu, les producteurs sont arrêtés.
+     *
+     * @param videoPath       Chemin de la vidéo à traiter.
+     * @param echantillonnage Fréquence d'extraction des images.
+     * @param nombre          Nombre d'échantillons de la vidéo
+     *                        (voir {@link TraitementVideo#obtenirNombreEchantillons(String, Echantillonnage)}).
+     * @param consommateur    Action appelée pour chaque image extraite.
+     */
+    public void extraire(String videoPath, Echantillonnage echantillonnage, int nombre,
+                         Consumer<FrameVideo> consommateur) {
+        int nbProducteurs = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), nombre));
+        int tailleBloc = Math.max(1, Math.min(fenetre / (2 * nbProducteurs),
+                (int) Math.ceil((double) nombre / nbProducteurs)));
+        BlockingQueue<Message> file = new ArrayBlockingQueue<>(capaciteFile);
+        Distribution distribution = new Distribution(nombre, tailleBloc, fenetre);
+
+        ExecutorService executor = Executors.newFixedThreadPool(nbProducteurs);
+        for (int i = 0; i < nbProducteurs; i++) {
+            executor.submit(() -> produire(videoPath, echantillonnage, distribution, file));
+        }
+        executor.shutdown();
+
+        FrameVideo[] enAttente = new FrameVideo[nombre];
+        boolean[] resolues = new boolean[nombre];
+        int prochaine = 0;
+        int producteurs = nbProducteurs;
+        try {
+            while (producteurs > 0) {
+                Message message = file.take();
+                if (message == FIN) {
+                    producteurs--;
+                    continue;
+                }
+
+                if (message.frame() != null) {
+                    enAttente[message.debut()] = message.frame();
+                }
+                for (int echantillon = message.debut(); echantillon < message.fin(); echantillon++) {
+                    resolues[echantillon] = true;
+                }
+
+                while (prochaine < nombre && resolues[prochaine]) {
+                    if (enAttente[prochaine] != null) {
+                        consommateur.accept(enAttente[prochaine]);
+                        enAttente[prochaine] = null;
+                    }
+                    prochaine++;
+                }
+                distribution.avancer(prochaine);
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Décode à nouveau un seul échantillon de la vidéo, par exemple pour revenir sur une image qui n'est plus
+     * conservée en mémoire (voir {@link SourceVideo}). La vidéo est ouverte et positionnée pour ce seul
+     * échantillon ; l'image n'est pas enregistrée sur le disque.
+     *
+     * @param videoPath       Chemin de la vidéo.
+     * @param echantillonnage Fréquence d'extraction des images.
+     * @param echantillon     L'indice de l'échantillon à décoder.
+     * @return L'image prête pour la lecture, ou null si elle n'a pas pu être décodée.
+     */
+    public FrameVideo relire(String videoPath, Echantillonnage echantillonnage, int echantillon) {
+        FrameVideo[] relue = {null};
+        traitementVideo.parcourirFrames(videoPath, echantillonnage, echantillon, echantillon + 1,
+                (indice, frame) -> relue[0] = convertir(indice, frame));
+        return relue[0];
+    }
+
+    /**
+     * Décode les blocs d'échantillons attribués à ce producteur et place leurs images dans la file,
+     * puis le marqueur de fin.
+     *
+     * @param videoPath       Chemin de la vidéo à traiter.
+     * @param echantillonnage Fréquence d'extraction des images.
+     * @param distribution    La distribution des blocs entre les producteurs.
+     * @param file            La file vers le consommateur.
+     */
+    private void produire(String videoPath, Echantillonnage echantillonnage, Distribution distribution,
+                          BlockingQueue<Message> file) {
+        try {
+            int debut;
+            while ((debut = distribution.reserverBloc()) >= 0) {
+                int fin = distribution.finBloc(debut);
+                try {
+                    traitementVideo.parcourirFrames(videoPath, echantillonnage, debut, fin, (echantillon, frame) -> {
+                        Message message = new Message(echantillon, echantillon + 1, preparer(echantillon, frame));
+                        try {
+                            file.put(message);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new CancellationException("Extraction annulée");
+                        }
+                    });
+                } catch (CancellationException e) {
+                    return;
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+                file.put(new Message(debut, fin, null));
+            }
+            file.put(FIN);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Prépare une image décodée pour la lecture, et l'enregistre sur le disque si demandé.
+     *
+     * @param echantillon L'indice de l'échantillon.
+     * @param frame       L'image décodée, au format BGR.
+     * @return L'image prête pour la lecture.
+     */
+    private FrameVideo preparer(int echantillon, Mat frame) {
+        if (dossierSauvegarde != null) {
+            traitementVideo.enregistrerFrame(frame, dossierSauvegarde + "/image_" + echantillon + ".jpg");
+        }
+        return convertir(echantillon, frame);
+    }
+
+    /**
+     * Transforme une image décodée en image prête pour la lecture.
+     *
+     * @param echantillon L'indice de l'échantillon.
+     * @param frame       L'image décodée, au format BGR.
+     * @return La matrice compressée et l'image réduite pour l'affichage.
+     */
+    private static FrameVideo convertir(int echantillon, Mat frame) {
+        int precedente = Mesures.imageCourante(echantillon);
+        try {
+            return new FrameVideo(echantillon,
+                    TraitementImage.compresserCouleur(frame),
+                    ConversionMat.versImageAffichage(frame, SourceLecture.TAILLE_AFFICHAGE));
+        } finally {
+            Mesures.imageCourante(precedente);
+        }
+    }
+
+    /**
+     * Distribue les blocs d'échantillons aux producteurs, dans l'ordre, sans dépasser la fenêtre de décodage.
+     */
+    private static final class Distribution {
+
+        /**
+         * Nombre d'échantillons de la vidéo.
+         */
+        private final int nombre;
+
+        /**
+         * Nombre d'échantillons par bloc.
+         */
+        private final int tailleBloc;
+
+        /**
+         * Avance maximale (en échantillons) du décodage sur la dernière image transmise.
+         */
+        private final int fenetre;
+
+        /**
+         * Premier échantillon du prochain bloc à attribuer.
+         */
+        private int prochainBloc = 0;
+
+        /**
+         * Nombre d'échantillons déjà transmis au consommateur, dans l'ordre.
+         */
+        private int transmises = 0;
+
+        /**
+         * Constructeur de la distribution.
+         *
+         * @param nombre     Nombre d'échantillons de la vidéo.
+         * @param tailleBloc Nombre d'échantillons par bloc.
+         * @param fenetre    Avance maximale (en échantillons) du décodage sur la dernière image transmise.
+         */
+        Distribution(int nombre, int tailleBloc, int fenetre) {
+            this.nombre = nombre;
+            this.tailleBloc = tailleBloc;
+            this.fenetre = fenetre;
+        }
+
+        /**
+         * Attribue le prochain bloc, en attendant qu'il entre dans la fenêtre de décodage.
+         *
+         * @return Le premier échantillon du bloc, ou -1 s'il ne reste aucun bloc.
+         * @throws InterruptedException Si le thread est interrompu pendant l'attente.
+         */
+        synchronized int reserverBloc() throws InterruptedException {
+            while (prochainBloc < nombre && prochainBloc >= transmises + fenetre) {
+                wait();
+            }
+            if (prochainBloc >= nombre) {
+                return -1;
+            }
+            int debut = prochainBloc;
+            prochainBloc += tailleBloc;
+            return debut;
+        }
+
+        /**
+         * Retourne l'indice suivant le dernier échantillon d'un bloc.
+         *
+         * @param debut Le premier échantillon du bloc.
+         * @return La fin (exclue) du bloc.
+         */
+        int finBloc(int debut) {
+            return Math.min(debut + tailleBloc, nombre);
+        }
+
+        /**
+         * Met à jour le nombre d'échantillons transmis au consommateur.
+         *
+         * @param transmises Le nombre d'échantillons transmis.
+         */
+        synchronized void avancer(int transmises) {
+            this.transmises = transmises;
+            notifyAll();
+        }
+    }
+}
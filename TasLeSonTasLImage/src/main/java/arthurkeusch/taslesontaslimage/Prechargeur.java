@@ -0,0 +1,184 @@
+package arthurkeusch.taslesontaslimage;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Préparation en arrière-plan des images qui suivent l'image en cours de lecture.
+ * <p>
+ * Pour chaque image de la fenêtre de préchargement, un thread dédié calcule la matrice compressée et le son
+ * (placé dans le cache de {@link CreationAudio}). Les images à afficher sont chargées par {@link ChargeurAffichage}. Lorsque la lecture saute à une autre
+ * image, les préparations qui sortent de la fenêtre sont annulées et la fenêtre est déplacée.
+ * <p>
+ * Une préparation déjà commencée n'est jamais interrompue : elle peut être en train d'agrandir
+ * {@link CacheMatrices}, dont les fichiers seraient fermés par l'interruption. Seules les préparations
+ * encore en attente sont abandonnées.
+ */
+public class Prechargeur {
+
+    /**
+     * Une image prête à être lue : sa matrice, dont le son est déjà dans le cache.
+     *
+     * @param indice  L'indice de l'image dans la source.
+     * @param matrice La matrice compressée.
+     */
+    public record ImagePrete(int indice, ImageMatrice matrice) {
+    }
+
+    /**
+     * Les images à lire.
+     */
+    private final SourceLecture source;
+
+    /**
+     * L'objet responsable de la création du son, dont le cache reçoit les sons préparés.
+     */
+    private final CreationAudio creationAudio;
+
+    /**
+     * Nombre d'images préparées au-delà de l'image courante.
+     */
+    private final int profondeur;
+
+    /**
+     * Les threads de préparation.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Les préparations de la fenêtre courante, par indice d'image.
+     */
+    private final Map<Integer, Future<ImagePrete>> taches = new HashMap<>();
+
+    /**
+     * Constructeur du préchargeur.
+     *
+     * @param source        Les images à lire.
+     * @param creationAudio L'objet responsable de la création du son.
+     * @param profondeur    Nombre d'images préparées au-delà de l'image courante.
+     * @param nbThreads     Nombre de threads de préparation.
+     * @throws IllegalArgumentException Si la profondeur est négative ou si le nombre de threads n'est pas
+     *                                  strictement positif.
+     */
+    public Prechargeur(SourceLecture source, CreationAudio creationAudio, int profondeur, int nbThreads) {
+        if (profondeur < 0 || nbThreads <= 0) {
+            throw new IllegalArgumentException("Préchargement invalide : " + profondeur + " images, " + nbThreads + " threads");
+        }
+        this.source = source;
+        this.creationAudio = creationAudio;
+        this.profondeur = profondeur;
+        this.executor = Executors.newFixedThreadPool(nbThreads, tache -> {
+            Thread thread = new Thread(tache, "prechargement");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Retourne une image prête à être lue, en attendant la fin de sa préparation si nécessaire,
+     * et déplace la fenêtre de préchargement sur cette image.
+     *
+     * @param indice L'indice de l'image.
+     * @return L'image prête.
+     * @throws InterruptedException Si le thread est interrompu pendant l'attente.
+     */
+    public ImagePrete obtenir(int indice) throws InterruptedException {
+        Future<ImagePrete> tache;
+        synchronized (this) {
+            cibler(indice);
+            tache = taches.get(indice);
+        }
+        if (tache == null) {
+            return preparer(indice);
+        }
+
+        try {
+            return tache.get();
+        } catch (CancellationException e) {
+            // La fenêtre a été déplacée entre-temps : l'image est préparée dans le thread appelant.
+            return preparer(indice);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Place la fenêtre de préchargement sur une image : les préparations hors de la fenêtre sont annulées
+     * et celles qui manquent sont lancées, de la plus proche à la plus lointaine.
+     *
+     * @param indice L'indice de la première image de la fenêtre.
+     */
+    public synchronized void cibler(int indice) {
+        int taille = source.taille();
+        if (taille == 0 || executor.isShutdown()) {
+            return;
+        }
+
+        Set<Integer> fenetre = new LinkedHashSet<>();
+        for (int k = 0; k <= profondeur; k++) {
+            int suivant = indice + k;
+            if (suivant >= taille) {
+                if (!source.estComplete()) {
+                    break;
+                }
+                suivant %= taille;
+            }
+            fenetre.add(suivant);
+        }
+
+        Iterator<Map.Entry<Integer, Future<ImagePrete>>> entrees = taches.entrySet().iterator();
+        while (entrees.hasNext()) {
+            Map.Entry<Integer, Future<ImagePrete>> entree = entrees.next();
+            if (!fenetre.contains(entree.getKey())) {
+                entree.getValue().cancel(false);
+                entrees.remove();
+            }
+        }
+
+        for (int suivant : fenetre) {
+            if (!taches.containsKey(suivant)) {
+                taches.put(suivant, executor.submit(() -> preparer(suivant)));
+            }
+        }
+    }
+
+    /**
+     * Annule les préparations en attente et arrête les threads de préparation, une fois les préparations
+     * déjà commencées terminées.
+     */
+    public synchronized void fermer() {
+        for (Future<ImagePrete> tache : taches.values()) {
+            tache.cancel(false);
+        }
+        taches.clear();
+        executor.shutdown();
+    }
+
+    /**
+     * Prépare une image : calcule sa matrice et son son, conservé dans le cache.
+     *
+     * @param indice L'indice de l'image.
+     * @return L'image prête.
+     */
+    private ImagePrete preparer(int indice) {
+        int precedente = Mesures.imageCourante(indice);
+        try {
+            ImageMatrice matrice = source.matrice(indice);
+            creationAudio.obtenirSon(matrice);
+            return new ImagePrete(indice, matrice);
+        } finally {
+            Mesures.imageCourante(precedente);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package arthurkeusch.taslesontaslimage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Calcul parallèle des échantillons d'une ou plusieurs images, par découpage des colonnes
+ * dans un {@link ForkJoinPool}.
+ * <p>
+ * Chaque tâche écrit une plage disjointe du tampon de sortie partagé, et les moteurs de synthèse
+ * ne dépendent que de la position absolue des colonnes : le résultat est identique, au bit près,
+ * à un calcul séquentiel, quel que soit le découpage.
+ */
+public final class RenduParallele {
+
+    /**
+     * Quantité de travail (lignes x échantillons) en dessous de laquelle une plage de colonnes
+     * est calculée sur le thread courant, sans découpage.
+     * <p>
+     * Mesuré avec la synthèse additive, une unité coûte de 0,74 ns (image remplie à 30 %) à 2,5 ns (image dense) :
+     * une tâche au seuil (2<sup>22</sup> unités) dure donc de 3 à 10 ms. Une tâche qui reste sur le thread
+     * qui la découpe coûte environ 23 ns au pool, mais une tâche confiée à un thread du pool en attente coûte
+     * le temps de le réveiller, 21 µs en médiane et 31 µs au 9e décile. Au seuil, ce réveil reste sous 1 %
+     * du calcul de la tâche même pour une image peu remplie ; un seuil deux fois plus petit le doublerait.
+     * Une image de la grille par défaut (64 lignes, 64 colonnes de 689 échantillons, soit 2,8 millions d'unités)
+     * reste ainsi calculée sur le thread appelant ; seules les grilles plus grandes sont découpées.
+     */
+    static final long SEUIL_TRAVAIL = 1L << 22;
+
+    private RenduParallele() {
+    }
+
+    /**
+     * Calcule les échantillons des colonnes {@code colDebut} à {@code colFin} (exclue) d'une image.
+     *
+     * @param moteur          Le moteur de synthèse.
+     * @param image           La matrice d'image.
+     * @param colDebut        La première colonne à calculer.
+     * @param colFin          La colonne suivant la dernière colonne à calculer.
+     * @param samplesPerFrame Nombre d'échantillons par colonne.
+     * @param sortie          Le tableau recevant les échantillons, à partir de l'indice 0.
+     */
+    public static void rendre(MoteurSynthese moteur, ImageMatrice image, int colDebut, int colFin,
+                              int samplesPerFrame, double[] sortie) {
+        TacheColonnes tache = new TacheColonnes(moteur, image, colDebut, colFin, colDebut,
+                samplesPerFrame, (long) image.getHauteur() * samplesPerFrame, sortie);
+        if (tache.travail() < SEUIL_TRAVAIL) {
+            tache.compute();
+        } else {
+            ForkJoinPool.commonPool().invoke(tache);
+        }
+    }
+
+    /**
+     * Calcule les échantillons des {@code numCols} premières colonnes de chaque image d'une séquence.
+     * Les images et leurs colonnes sont réparties ensemble sur les threads disponibles.
+     *
+     * @param moteur          Le moteur de synthèse.
+     * @param images          Les matrices d'image.
+     * @param numCols         Nombre de colonnes à calculer dans chaque image.
+     * @param samplesPerFrame Nombre d'échantillons par colonne.
+     * @return Les échantillons de chaque image, dans l'ordre de la séquence.
+     */
+    public static List<double[]> rendreSequence(MoteurSynthese moteur, List<ImageMatrice> images, int numCols,
+                                                int samplesPerFrame) {
+        List<double[]> sorties = new ArrayList<>(images.size());
+        List<TacheColonnes> taches = new ArrayList<>(images.size());
+        for (ImageMatrice image : images) {
+            double[] sortie = new double[numCols * samplesPerFrame];
+            sorties.add(sortie);
+            taches.add(new TacheColonnes(moteur, image, 0, numCols, 0,
+                    samplesPerFrame, (long) image.getHauteur() * samplesPerFrame, sortie));
+        }
+        ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(taches);
+            }
+        });
+        return sorties;
+    }
+
+    /**
+     * Tâche calculant une plage de colonnes, découpée en deux tant qu'elle dépasse le seuil de travail.
+     * Elle n'est sérialisable que par héritage de {@link RecursiveAction} et n'est jamais sérialisée :
+     * les avertissements de sérialisation sont ignorés.
+     */
+    @SuppressWarnings("serial")
+    private static final class TacheColonnes extends RecursiveAction {
+
+        private final MoteurSynthese moteur;
+        private final ImageMatrice image;
+        private final int colDebut;
+        private final int colFin;
+        private final int colOrigine;
+        private final int samplesPerFrame;
+        private final long travailParColonne;
+        private final double[] sortie;
+
+        /**
+         * Constructeur d'une tâche de calcul.
+         *
+         * @param moteur            Le moteur de synthèse.
+         * @param image             La matrice d'image.
+         * @param colDebut          La première colonne à calculer.
+         * @param colFin            La colonne suivant la dernière colonne à calculer.
+         * @param colOrigine        La colonne correspondant à l'indice 0 du tableau de sortie.
+         * @param samplesPerFrame   Nombre d'échantillons par colonne.
+         * @param travailParColonne Quantité de travail estimée pour une colonne.
+         * @param sortie            Le tableau partagé recevant les échantillons.
+         */
+        TacheColonnes(MoteurSynthese moteur, ImageMatrice image, int colDebut, int colFin, int colOrigine,
+                      int samplesPerFrame, long travailParColonne, double[] sortie) {
+            this.moteur = moteur;
+            this.image = image;
+            this.colDebut = colDebut;
+            this.colFin = colFin;
+            this.colOrigine = colOrigine;
+            this.samplesPerFrame = samplesPerFrame;
+            this.travailParColonne = travailParColonne;
+            this.sortie = sortie;
+        }
+
+        /**
+         * Retourne la quantité de travail estimée pour la plage de colonnes de la tâche.
+         *
+         * @return Le nombre de lignes multiplié par le nombre d'échantillons.
+         */
+        long travail() {
+            return (colFin - colDebut) * travailParColonne;
+        }
+
+        @Override
+        protected void compute() {
+            if (colFin - colDebut <= 1 || travail() < SEUIL_TRAVAIL) {
+                moteur.rendreColonnes(image, colDebut, colFin, sortie, (colDebut - colOrigine) * samplesPerFrame);
+                return;
+            }
+            int milieu = (colDebut + colFin) >>> 1;
+            invokeAll(
+                    new TacheColonnes(moteur, image, colDebut, milieu, colOrigine,
+                            samplesPerFrame, travailParColonne, sortie),
+                    new TacheColonnes(moteur, image, milieu, colFin, colOrigine,
+                            samplesPerFrame, travailParColonne, sortie));
+        }
+    }
+}
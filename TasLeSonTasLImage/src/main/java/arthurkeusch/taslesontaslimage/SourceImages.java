@@ -0,0 +1,112 @@
+package arthurkeusch.taslesontaslimage;
+
+import javafx.scene.image.Image;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Source de lecture construite à partir de fichiers images : chaque image est lue depuis le disque
+ * lorsqu'elle est demandée.
+ */
+public class SourceImages implements SourceLecture {
+
+    /**
+     * Les fichiers images, dans l'ordre de lecture.
+     */
+    private final List<File> images;
+
+    /**
+     * L'objet responsable du traitement des images.
+     */
+    private final TraitementImage traitementImage;
+
+    /**
+     * Cache persistant des matrices, ou null pour toujours recalculer les matrices.
+     */
+    private final CacheMatrices cacheMatrices;
+
+    /**
+     * La dernière matrice calculée et le fichier dont elle provient, ou null.
+     */
+    private volatile Memoire derniere;
+
+    /**
+     * Une matrice calculée et le fichier dont elle provient, publiés ensemble.
+     *
+     * @param image   Le fichier image.
+     * @param matrice La matrice de l'image.
+     */
+    private record Memoire(File image, ImageMatrice matrice) {
+    }
+
+    /**
+     * Constructeur de la source d'images.
+     *
+     * @param images          Les fichiers images, dans l'ordre de lecture.
+     * @param traitementImage L'objet responsable du traitement des images.
+     */
+    public SourceImages(List<File> images, TraitementImage traitementImage) {
+        this(images, traitementImage, null);
+    }
+
+    /**
+     * Constructeur de la source d'images, avec un cache persistant des matrices.
+     *
+     * @param images          Les fichiers images, dans l'ordre de lecture.
+     * @param traitementImage L'objet responsable du traitement des images.
+     * @param cacheMatrices   Cache persistant des matrices, ou null pour toujours recalculer les matrices.
+     */
+    public SourceImages(List<File> images, TraitementImage traitementImage, CacheMatrices cacheMatrices) {
+        this.images = List.copyOf(images);
+        this.traitementImage = traitementImage;
+        this.cacheMatrices = cacheMatrices;
+    }
+
+    /**
+     * Constructeur de la source d'images à partir de l'index d'un dossier. L'index n'est pas copié :
+     * les images qui y sont ajoutées pendant la lecture font partie de la source.
+     *
+     * @param index           L'index du dossier d'images.
+     * @param traitementImage L'objet responsable du traitement des images.
+     * @param cacheMatrices   Cache persistant des matrices, ou null pour toujours recalculer les matrices.
+     */
+    public SourceImages(IndexDossier index, TraitementImage traitementImage, CacheMatrices cacheMatrices) {
+        this.images = index;
+        this.traitementImage = traitementImage;
+        this.cacheMatrices = cacheMatrices;
+    }
+
+    @Override
+    public int taille() {
+        return images.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     * La matrice de la dernière image demandée est conservée : la relire ne décode pas à nouveau le fichier.
+     * Les calculs ne sont pas synchronisés : plusieurs threads peuvent décoder des images différentes en même temps.
+     */
+    @Override
+    public ImageMatrice matrice(int indice) {
+        File image = images.get(indice);
+        Memoire memoire = derniere;
+        if (memoire != null && memoire.image().equals(image)) {
+            return memoire.matrice();
+        }
+        ImageMatrice matrice = cacheMatrices == null
+                ? traitementImage.traitement(image.getAbsolutePath())
+                : cacheMatrices.obtenir(image, fichier -> traitementImage.traitement(fichier.getAbsolutePath()));
+        derniere = new Memoire(image, matrice);
+        return matrice;
+    }
+
+    /**
+     * {@inheritDoc}
+     * L'image est réduite dès le décodage à la taille de la zone d'affichage.
+     */
+    @Override
+    public Image affichage(int indice) {
+        return new Image(images.get(indice).toURI().toString(), TAILLE_AFFICHAGE, TAILLE_AFFICHAGE, true, true);
+    }
+}
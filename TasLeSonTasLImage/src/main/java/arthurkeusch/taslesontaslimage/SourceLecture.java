@@ -0,0 +1,67 @@
+package arthurkeusch.taslesontaslimage;
+
+import javafx.scene.image.Image;
+
+/**
+ * Une suite d'images à lire : pour chaque indice, l'image à afficher et la matrice à convertir en son.
+ */
+public interface SourceLecture {
+
+    /**
+     * Taille maximale (en pixels) du plus grand côté des images affichées, qui est aussi la taille
+     * de la zone d'affichage.
+     */
+    int TAILLE_AFFICHAGE = 500;
+
+    /**
+     * Retourne le nombre d'images de la source.
+     *
+     * @return Le nombre d'images.
+     */
+    int taille();
+
+    /**
+     * Indique si toutes les images de la source sont disponibles. Tant que ce n'est pas le cas,
+     * {@link #taille()} peut encore augmenter.
+     *
+     * @return true si la source ne recevra plus de nouvelles images.
+     */
+    default boolean estComplete() {
+        return true;
+    }
+
+    /**
+     * Retourne la matrice compressée d'une image, utilisée pour générer son son.
+     *
+     * @param indice L'indice de l'image.
+     * @return La matrice compressée.
+     */
+    ImageMatrice matrice(int indice);
+
+    /**
+     * Retourne l'image à afficher pour un indice donné.
+     *
+     * @param indice L'indice de l'image.
+     * @return L'image à afficher.
+     */
+    Image affichage(int indice);
+
+    /**
+     * Attend qu'une image soit disponible.
+     *
+     * @param indice L'indice de l'image attendue.
+     * @return true si l'image est disponible, false si la source est complète sans contenir cette image.
+     * @throws InterruptedException Si le thread est interrompu pendant l'attente.
+     */
+    default boolean attendre(int indice) throws InterruptedException {
+        return indice < taille();
+    }
+
+    /**
+     * Signale l'image en cours de lecture, pour les sources dont le chargement suit la lecture.
+     *
+     * @param indice L'indice de l'image lue.
+     */
+    default void positionnerLecture(int indice) {
+    }
+}
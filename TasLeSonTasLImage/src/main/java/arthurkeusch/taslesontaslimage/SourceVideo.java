@@ -0,0 +1,209 @@
+package arthurkeusch.taslesontaslimage;
+
+import javafx.scene.image.Image;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Source de lecture construite à partir des images extraites d'une vidéo.
+ * <p>
+ * Les images sont ajoutées dans l'ordre pendant l'extraction, ce qui permet de commencer la lecture
+ * dès la première image. L'ajout bloque lorsque l'extraction a trop d'avance sur la position de lecture
+ * (voir {@link #positionnerLecture(int)}).
+ * <p>
+ * Seule une fenêtre d'images est conservée en mémoire, dans un tableau circulaire indexé par la position
+ * de l'image : les {@code retenue} images qui précèdent la position de lecture, l'image lue et celles déjà
+ * extraites au-delà. Une image plus ancienne est décodée à nouveau à la demande, par la fonction de relecture
+ * fournie (voir {@link PipelineVideo#relire(String, Echantillonnage, int)}), ce qui coûte une ouverture et
+ * un positionnement de la vidéo ; la dernière image relue est conservée pour que sa matrice et son image
+ * d'affichage ne soient décodées qu'une fois.
+ */
+public class SourceVideo implements SourceLecture {
+
+    /**
+     * Les images de la fenêtre : l'image d'indice {@code i} se trouve dans la case {@code i % fenetre.length}
+     * tant que {@code i >= nombre - fenetre.length}.
+     */
+    private final FrameVideo[] fenetre;
+
+    /**
+     * Indice de l'échantillon de la vidéo correspondant à chaque image ajoutée, pour pouvoir la relire.
+     */
+    private int[] echantillons = new int[64];
+
+    /**
+     * Nombre d'images ajoutées.
+     */
+    private int nombre = 0;
+
+    /**
+     * Fonction décodant à nouveau un échantillon de la vidéo, ou null si les images sorties de la fenêtre
+     * ne peuvent pas être relues.
+     */
+    private final IntFunction<FrameVideo> relecture;
+
+    /**
+     * Dernière image relue hors de la fenêtre, ou null.
+     */
+    private FrameVideo derniereRelue;
+
+    /**
+     * Nombre maximal d'images disponibles au-delà de la position de lecture.
+     */
+    private final int avanceMax;
+
+    /**
+     * Indice de l'image en cours de lecture.
+     */
+    private int positionLecture = 0;
+
+    /**
+     * Indique si l'extraction est terminée.
+     */
+    private boolean complete = false;
+
+    /**
+     * Constructeur de la source vidéo.
+     *
+     * @param avanceMax Nombre maximal d'images disponibles au-delà de la position de lecture.
+     * @param retenue   Nombre d'images conservées avant la position de lecture.
+     * @param relecture Fonction décodant à nouveau un échantillon de la vidéo (et retournant null en cas d'échec),
+     *                  ou null pour que l'accès à une image sortie de la fenêtre échoue.
+     * @throws IllegalArgumentException Si l'avance maximale n'est pas strictement positive ou si la retenue
+     *                                  est négative.
+     */
+    public SourceVideo(int avanceMax, int retenue, IntFunction<FrameVideo> relecture) {
+        if (avanceMax <= 0) {
+            throw new IllegalArgumentException("Avance maximale invalide : " + avanceMax);
+        }
+        if (retenue < 0) {
+            throw new IllegalArgumentException("Retenue invalide : " + retenue);
+        }
+        this.avanceMax = avanceMax;
+        this.fenetre = new FrameVideo[retenue + avanceMax + 1];
+        this.relecture = relecture;
+    }
+
+    /**
+     * Ajoute l'image suivante de la vidéo. Bloque tant que l'avance sur la position de lecture est atteinte.
+     * L'image ajoutée remplace dans la fenêtre la plus ancienne image conservée.
+     *
+     * @param frame L'image suivante.
+     * @return true si l'image a été ajoutée, false si le thread a été interrompu pendant l'attente.
+     */
+    public synchronized boolean ajouter(FrameVideo frame) {
+        try {
+            while (nombre - positionLecture > avanceMax) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        if (nombre == echantillons.length) {
+            echantillons = Arrays.copyOf(echantillons, 2 * nombre);
+        }
+        echantillons[nombre] = frame.indice();
+        fenetre[nombre % fenetre.length] = frame;
+        nombre++;
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Signale la fin de l'extraction : aucune image ne sera plus ajoutée.
+     */
+    public synchronized void terminer() {
+        complete = true;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized int taille() {
+        return nombre;
+    }
+
+    @Override
+    public synchronized boolean estComplete() {
+        return complete;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Si l'image n'est plus dans la fenêtre, elle est décodée à nouveau dans le thread appelant.
+     *
+     * @throws IllegalStateException Si l'image est sortie de la fenêtre et ne peut pas être relue.
+     */
+    @Override
+    public ImageMatrice matrice(int indice) {
+        return frame(indice).matrice();
+    }
+
+    /**
+     * {@inheritDoc}
+     * Si l'image n'est plus dans la fenêtre, elle est décodée à nouveau dans le thread appelant.
+     *
+     * @throws IllegalStateException Si l'image est sortie de la fenêtre et ne peut pas être relue.
+     */
+    @Override
+    public Image affichage(int indice) {
+        return frame(indice).affichage();
+    }
+
+    /**
+     * Retourne une image de la fenêtre, ou la décode à nouveau si elle en est sortie.
+     * Le décodage a lieu hors du verrou, pour ne pas bloquer l'extraction.
+     *
+     * @param indice L'indice de l'image.
+     * @return L'image.
+     * @throws IndexOutOfBoundsException Si l'image n'a pas encore été ajoutée.
+     * @throws IllegalStateException     Si l'image est sortie de la fenêtre et ne peut pas être relue.
+     */
+    private FrameVideo frame(int indice) {
+        int echantillon;
+        synchronized (this) {
+            if (indice < 0 || indice >= nombre) {
+                throw new IndexOutOfBoundsException("Image " + indice + " sur " + nombre);
+            }
+            if (indice >= nombre - fenetre.length) {
+                return fenetre[indice % fenetre.length];
+            }
+            echantillon = echantillons[indice];
+            if (derniereRelue != null && derniereRelue.indice() == echantillon) {
+                return derniereRelue;
+            }
+        }
+
+        FrameVideo relue = relecture == null ? null : relecture.apply(echantillon);
+        if (relue == null) {
+            throw new IllegalStateException("L'image " + indice + " n'est plus en mémoire et n'a pas pu être relue.");
+        }
+        synchronized (this) {
+            derniereRelue = relue;
+        }
+        return relue;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Bloque tant que l'image n'a pas été extraite et que l'extraction n'est pas terminée.
+     */
+    @Override
+    public synchronized boolean attendre(int indice) throws InterruptedException {
+        while (nombre <= indice && !complete) {
+            wait();
+        }
+        return indice < nombre;
+    }
+
+    /**
+     * {@inheritDoc}
+     * L'extraction peut alors reprendre jusqu'à l'avance maximale au-delà de cette image.
+     */
+    @Override
+    public synchronized void positionnerLecture(int indice) {
+        positionLecture = indice;
+        notifyAll();
+    }
+}
@@ -0,0 +1,115 @@
+package arthurkeusch.taslesontaslimage;
+
+import java.util.Arrays;
+
+/**
+ * Synthèse additive : chaque ligne de la matrice est une sinusoïde dont l'amplitude est donnée par le pixel.
+ * <p>
+ * Seules les pulsations de chaque ligne sont conservées (quelques valeurs par ligne) : la mémoire utilisée
+ * ne dépend pas du nombre de colonnes ni de la durée du son, et changer de plage de fréquences est immédiat.
+ * Les instances ne sont pas modifiées après construction et peuvent être partagées entre threads.
+ */
+public class SyntheseAdditive implements MoteurSynthese {
+
+    /**
+     * Pulsation (en radians par échantillon) de chaque ligne.
+     */
+    private final double[] omega;
+
+    /**
+     * Cosinus du déphasage de chaque position d'un bloc ({@code j * omega}), pour chaque ligne.
+     */
+    private final double[][] cosVoies;
+
+    /**
+     * Sinus du déphasage de chaque position d'un bloc ({@code j * omega}), pour chaque ligne.
+     */
+    private final double[][] sinVoies;
+
+    /**
+     * Cosinus de la rotation de phase appliquée à chaque bloc d'échantillons, pour chaque ligne.
+     */
+    private final double[] cosBloc;
+
+    /**
+     * Sinus de la rotation de phase appliquée à chaque bloc d'échantillons, pour chaque ligne.
+     */
+    private final double[] sinBloc;
+
+    /**
+     * Nombre d'échantillons par colonne.
+     */
+    private final int samplesPerFrame;
+
+    /**
+     * Constructeur de la synthèse additive.
+     *
+     * @param frequencyTable  Fréquence (en Hz) de chaque ligne.
+     * @param samplesPerFrame Nombre d'échantillons produits par colonne.
+     * @param sampleRate      Taux d'échantillonnage audio (en Hz).
+     */
+    public SyntheseAdditive(double[] frequencyTable, int samplesPerFrame, int sampleRate) {
+        int numRows = frequencyTable.length;
+        this.samplesPerFrame = samplesPerFrame;
+        this.omega = new double[numRows];
+        this.cosBloc = new double[numRows];
+        this.sinBloc = new double[numRows];
+        this.cosVoies = new double[numRows][NoyauSynthese.LARGEUR_BLOC];
+        this.sinVoies = new double[numRows][NoyauSynthese.LARGEUR_BLOC];
+        for (int row = 0; row < numRows; row++) {
+            this.omega[row] = 2.0 * Math.PI * frequencyTable[row] / sampleRate;
+            for (int j = 0; j < NoyauSynthese.LARGEUR_BLOC; j++) {
+                this.cosVoies[row][j] = Math.cos(j * this.omega[row]);
+                this.sinVoies[row][j] = Math.sin(j * this.omega[row]);
+            }
+            this.cosBloc[row] = Math.cos(NoyauSynthese.LARGEUR_BLOC * this.omega[row]);
+            this.sinBloc[row] = Math.sin(NoyauSynthese.LARGEUR_BLOC * this.omega[row]);
+        }
+    }
+
+    @Override
+    public void rendreColonnes(ImageMatrice image, int colDebut, int colFin, double[] sortie, int offset) {
+        for (int col = colDebut; col < colFin; col++) {
+            rendreColonne(image, col, sortie, offset + (col - colDebut) * samplesPerFrame);
+        }
+    }
+
+    /**
+     * Calcule les échantillons d'une colonne de la matrice.
+     * La phase de chaque sinusoïde dépend de la position absolue de l'échantillon dans l'image,
+     * de sorte que les colonnes successives s'enchaînent sans discontinuité.
+     * <p>
+     * La colonne est parcourue une seule fois : seules les lignes d'amplitude non nulle sont additionnées,
+     * de sorte que le coût d'une colonne est proportionnel à son nombre de pixels non noirs.
+     *
+     * @param image  La matrice dont chaque pixel donne l'amplitude d'une ligne.
+     * @param col    La colonne à calculer.
+     * @param sortie Le tableau recevant les {@code samplesPerFrame} échantillons (non limités).
+     * @param offset Position du premier échantillon écrit.
+     */
+    public void rendreColonne(ImageMatrice image, int col, double[] sortie, int offset) {
+        Arrays.fill(sortie, offset, offset + samplesPerFrame, 0.0);
+
+        long premierEchantillon = (long) col * samplesPerFrame;
+        for (int row = 0; row < omega.length; row++) {
+            int amplitude = image.get(row, col);
+            if (amplitude != 0) {
+                ajouterLigne(sortie, offset, amplitude, row, premierEchantillon);
+            }
+        }
+    }
+
+    /**
+     * Ajoute la sinusoïde d'une ligne aux échantillons d'une colonne.
+     *
+     * @param sortie             Le tableau des échantillons de la colonne.
+     * @param offset             Position du premier échantillon de la colonne.
+     * @param amplitude          Amplitude de la ligne dans cette colonne.
+     * @param row                La ligne à ajouter.
+     * @param premierEchantillon Position absolue, dans l'image, du premier échantillon de la colonne.
+     */
+    private void ajouterLigne(double[] sortie, int offset, int amplitude, int row, long premierEchantillon) {
+        NoyauSynthese.ajouterSinusoide(sortie, offset, samplesPerFrame, amplitude,
+                omega[row] * premierEchantillon, cosVoies[row], sinVoies[row], cosBloc[row], sinBloc[row]);
+    }
+}
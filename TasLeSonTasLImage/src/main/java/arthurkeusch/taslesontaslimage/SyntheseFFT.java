@@ -0,0 +1,318 @@
+package arthurkeusch.taslesontaslimage;
+
+import java.util.Arrays;
+
+/**
+ * Synthèse par transformée de Fourier inverse et addition avec recouvrement.
+ * <p>
+ * Chaque colonne de la matrice devient un spectre : l'amplitude de chaque ligne est placée dans le canal
+ * de fréquence le plus proche de sa fréquence. Une transformée inverse produit une trame de deux colonnes,
+ * pondérée par une fenêtre de Hann et ajoutée à ses voisines avec un pas d'une colonne.
+ * Le coût d'une colonne est en {@code N log N} (avec {@code N} la taille de la transformée) et ne dépend
+ * presque plus du nombre de lignes. En contrepartie, chaque fréquence est arrondie au canal le plus proche.
+ * <p>
+ * La taille de la transformée n'est pas celle de la trame : elle est choisie pour que l'écart entre deux canaux
+ * ne dépasse pas l'écart entre deux lignes voisines, et chaque ligne a ainsi son propre canal (seuls les premiers
+ * échantillons de la transformée, ceux de la trame, sont utilisés). Pour 1024 lignes entre 200 et 3000 Hz,
+ * la transformée compte 16384 points au lieu de 128 : la résolution se paie en temps de calcul.
+ * <p>
+ * Calculée par {@link #rendreColonnes(ImageMatrice, int, int, double[], int)}, une plage de colonnes demande
+ * aussi les trames qui la débordent de part et d'autre. Le rendu progressif
+ * ({@link #rendreProgressivement(ImageMatrice)}) conserve au contraire la fin des trames déjà calculées
+ * d'une colonne à la suivante : chaque trame n'est calculée qu'une fois, soit une transformée par colonne.
+ */
+public class SyntheseFFT implements MoteurSynthese {
+
+    /**
+     * Taille maximale de la transformée de Fourier. Au-delà, des lignes très proches peuvent
+     * de nouveau partager un canal.
+     */
+    static final int TAILLE_FFT_MAX = 1 << 16;
+
+    /**
+     * Nombre d'échantillons par colonne, qui est aussi le pas entre deux trames.
+     */
+    private final int samplesPerFrame;
+
+    /**
+     * Longueur (en échantillons) d'une trame : deux colonnes.
+     */
+    private final int longueurTrame;
+
+    /**
+     * Décalage entre le début d'une trame et le début de sa colonne, pour centrer la trame sur la colonne.
+     */
+    private final int decalageTrame;
+
+    /**
+     * Taille de la transformée de Fourier : puissance de deux au moins égale à la longueur d'une trame
+     * et donnant au moins un canal par ligne, dans la limite de {@link #TAILLE_FFT_MAX}.
+     */
+    private final int tailleFFT;
+
+    /**
+     * Canal de fréquence de chaque ligne, ou -1 si la fréquence est hors de la plage représentable.
+     */
+    private final int[] canaux;
+
+    /**
+     * Pulsation exacte (en radians par échantillon) de chaque ligne.
+     */
+    private final double[] omegaLignes;
+
+    /**
+     * Pulsation (en radians par échantillon) du canal de chaque ligne.
+     */
+    private final double[] omegaCanaux;
+
+    /**
+     * Fenêtre de Hann appliquée à chaque trame ; deux fenêtres décalées d'une colonne ont une somme constante.
+     */
+    private final double[] fenetre;
+
+    /**
+     * Cosinus de {@code 2 * PI * m / tailleFFT} pour chaque {@code m}.
+     */
+    private final double[] cosinus;
+
+    /**
+     * Sinus de {@code 2 * PI * m / tailleFFT} pour chaque {@code m}.
+     */
+    private final double[] sinus;
+
+    /**
+     * Permutation par inversion des bits utilisée par la transformée.
+     */
+    private final int[] inversionBits;
+
+    /**
+     * Constructeur de la synthèse par transformée de Fourier.
+     *
+     * @param frequencyTable  Fréquence (en Hz) de chaque ligne.
+     * @param samplesPerFrame Nombre d'échantillons produits par colonne.
+     * @param sampleRate      Taux d'échantillonnage audio (en Hz).
+     */
+    public SyntheseFFT(double[] frequencyTable, int samplesPerFrame, int sampleRate) {
+        this.samplesPerFrame = samplesPerFrame;
+        this.longueurTrame = 2 * samplesPerFrame;
+        this.decalageTrame = samplesPerFrame / 2;
+        this.tailleFFT = tailleFFT(frequencyTable, longueurTrame, sampleRate);
+
+        this.canaux = new int[frequencyTable.length];
+        this.omegaLignes = new double[frequencyTable.length];
+        this.omegaCanaux = new double[frequencyTable.length];
+        for (int row = 0; row < frequencyTable.length; row++) {
+            int canal = (int) Math.round(frequencyTable[row] * tailleFFT / sampleRate);
+            this.canaux[row] = canal > 0 && canal < tailleFFT / 2 ? canal : -1;
+            this.omegaLignes[row] = 2.0 * Math.PI * frequencyTable[row] / sampleRate;
+            this.omegaCanaux[row] = 2.0 * Math.PI * canal / tailleFFT;
+        }
+
+        this.fenetre = new double[longueurTrame];
+        for (int n = 0; n < longueurTrame; n++) {
+            this.fenetre[n] = 0.5 - 0.5 * Math.cos(2.0 * Math.PI * n / longueurTrame);
+        }
+
+        this.cosinus = new double[tailleFFT];
+        this.sinus = new double[tailleFFT];
+        for (int m = 0; m < tailleFFT; m++) {
+            this.cosinus[m] = Math.cos(2.0 * Math.PI * m / tailleFFT);
+            this.sinus[m] = Math.sin(2.0 * Math.PI * m / tailleFFT);
+        }
+
+        int bits = Integer.numberOfTrailingZeros(tailleFFT);
+        this.inversionBits = new int[tailleFFT];
+        for (int i = 0; i < tailleFFT; i++) {
+            this.inversionBits[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+        }
+    }
+
+    /**
+     * Calcule la taille de la transformée : la plus petite puissance de deux au moins égale à la longueur
+     * d'une trame et dont l'écart entre canaux, {@code sampleRate / N}, ne dépasse pas le plus petit écart
+     * entre deux fréquences distinctes de la table. Deux fréquences écartées d'au moins un canal
+     * sont alors arrondies à deux canaux différents.
+     *
+     * @param frequencyTable Fréquence (en Hz) de chaque ligne.
+     * @param longueurTrame  Longueur (en échantillons) d'une trame.
+     * @param sampleRate     Taux d'échantillonnage audio (en Hz).
+     * @return La taille de la transformée.
+     */
+    static int tailleFFT(double[] frequencyTable, int longueurTrame, int sampleRate) {
+        double[] triees = frequencyTable.clone();
+        Arrays.sort(triees);
+        double ecartMin = Double.POSITIVE_INFINITY;
+        for (int i = 1; i < triees.length; i++) {
+            double ecart = triees[i] - triees[i - 1];
+            if (ecart > 0) {
+                ecartMin = Math.min(ecartMin, ecart);
+            }
+        }
+
+        int minimum = Math.max(2, longueurTrame);
+        if (ecartMin < Double.POSITIVE_INFINITY) {
+            minimum = Math.max(minimum, (int) Math.min(TAILLE_FFT_MAX, Math.ceil(sampleRate / ecartMin)));
+        }
+        return Integer.highestOneBit(minimum - 1) << 1;
+    }
+
+    @Override
+    public void rendreColonnes(ImageMatrice image, int colDebut, int colFin, double[] sortie, int offset) {
+        long debutSortie = (long) colDebut * samplesPerFrame;
+        long finSortie = (long) colFin * samplesPerFrame;
+        Arrays.fill(sortie, offset, offset + (int) (finSortie - debutSortie), 0.0);
+
+        int[] amplitudes = new int[image.getHauteur()];
+        double[] reel = new double[tailleFFT];
+        double[] imaginaire = new double[tailleFFT];
+
+        for (int trame = colDebut - 1; trame <= colFin; trame++) {
+            long debutTrame = (long) trame * samplesPerFrame - decalageTrame;
+            int col = Math.max(0, Math.min(image.getLargeur() - 1, trame));
+            image.getColonne(col, amplitudes);
+            if (!calculerTrame(amplitudes, debutTrame, reel, imaginaire)) {
+                continue;
+            }
+
+            int premier = (int) Math.max(0, debutSortie - debutTrame);
+            int dernier = (int) Math.min(longueurTrame, finSortie - debutTrame);
+            for (int n = premier; n < dernier; n++) {
+                sortie[offset + (int) (debutTrame + n - debutSortie)] += fenetre[n] * reel[n];
+            }
+        }
+    }
+
+    @Override
+    public RenduProgressif rendreProgressivement(ImageMatrice image) {
+        return new RenduFFT(image);
+    }
+
+    /**
+     * Rendu progressif : les trames sont additionnées dans un tampon qui couvre la colonne à produire
+     * et les deux suivantes, puis la colonne terminée en est retirée. Les additions ont lieu dans le même
+     * ordre que dans {@link #rendreColonnes(ImageMatrice, int, int, double[], int)}, d'où des échantillons
+     * identiques au bit près.
+     */
+    private final class RenduFFT implements RenduProgressif {
+
+        private final ImageMatrice image;
+        private final int[] amplitudes;
+        private final double[] reel = new double[tailleFFT];
+        private final double[] imaginaire = new double[tailleFFT];
+
+        /**
+         * Somme des trames déjà calculées, à partir du premier échantillon de {@link #colonne}.
+         */
+        private final double[] accumulation = new double[3 * samplesPerFrame];
+
+        /**
+         * La prochaine colonne à produire.
+         */
+        private int colonne = 0;
+
+        /**
+         * La prochaine trame à calculer.
+         */
+        private int trame = -1;
+
+        RenduFFT(ImageMatrice image) {
+            this.image = image;
+            this.amplitudes = new int[image.getHauteur()];
+        }
+
+        @Override
+        public void colonneSuivante(double[] sortie, int offset) {
+            long debutColonne = (long) colonne * samplesPerFrame;
+            // La trame qui suit la colonne commence avant sa fin : c'est la dernière à la recouvrir.
+            for (; trame <= colonne + 1; trame++) {
+                long debutTrame = (long) trame * samplesPerFrame - decalageTrame;
+                image.getColonne(Math.max(0, Math.min(image.getLargeur() - 1, trame)), amplitudes);
+                if (!calculerTrame(amplitudes, debutTrame, reel, imaginaire)) {
+                    continue;
+                }
+                for (int n = (int) Math.max(0, debutColonne - debutTrame); n < longueurTrame; n++) {
+                    accumulation[(int) (debutTrame + n - debutColonne)] += fenetre[n] * reel[n];
+                }
+            }
+
+            System.arraycopy(accumulation, 0, sortie, offset, samplesPerFrame);
+            System.arraycopy(accumulation, samplesPerFrame, accumulation, 0, accumulation.length - samplesPerFrame);
+            Arrays.fill(accumulation, accumulation.length - samplesPerFrame, accumulation.length, 0.0);
+            colonne++;
+        }
+    }
+
+    /**
+     * Calcule une trame non fenêtrée : {@code reel[n]} reçoit la somme des sinusoïdes de chaque ligne,
+     * à la fréquence de son canal. La phase de chaque ligne est celle de sa fréquence exacte au centre
+     * de la trame, ce qui limite le déphasage entre trames voisines à la zone de recouvrement.
+     *
+     * @param amplitudes Amplitude de chaque ligne.
+     * @param debutTrame Position absolue du premier échantillon de la trame.
+     * @param reel       Tableau de travail recevant la trame.
+     * @param imaginaire Tableau de travail.
+     * @return false si la trame est silencieuse, auquel cas la transformée n'est pas calculée.
+     */
+    private boolean calculerTrame(int[] amplitudes, long debutTrame, double[] reel, double[] imaginaire) {
+        Arrays.fill(reel, 0.0);
+        Arrays.fill(imaginaire, 0.0);
+
+        double centre = longueurTrame / 2.0;
+        boolean active = false;
+        for (int row = 0; row < canaux.length; row++) {
+            int canal = canaux[row];
+            if (canal < 0 || amplitudes[row] == 0) {
+                continue;
+            }
+            // Phase au premier échantillon, décalée de -PI/2 pour obtenir un sinus après la transformée.
+            double phase = omegaLignes[row] * (debutTrame + centre) - omegaCanaux[row] * centre;
+            reel[canal] += amplitudes[row] * Math.sin(phase);
+            imaginaire[canal] -= amplitudes[row] * Math.cos(phase);
+            active = true;
+        }
+
+        if (active) {
+            transformeeInverse(reel, imaginaire);
+        }
+        return active;
+    }
+
+    /**
+     * Transformée de Fourier inverse (non normalisée), en place, par l'algorithme de Cooley-Tukey.
+     *
+     * @param reel       Parties réelles.
+     * @param imaginaire Parties imaginaires.
+     */
+    private void transformeeInverse(double[] reel, double[] imaginaire) {
+        for (int i = 0; i < tailleFFT; i++) {
+            int j = inversionBits[i];
+            if (j > i) {
+                double r = reel[i];
+                reel[i] = reel[j];
+                reel[j] = r;
+                double im = imaginaire[i];
+                imaginaire[i] = imaginaire[j];
+                imaginaire[j] = im;
+            }
+        }
+
+        for (int taille = 2; taille <= tailleFFT; taille <<= 1) {
+            int moitie = taille / 2;
+            int pas = tailleFFT / taille;
+            for (int debut = 0; debut < tailleFFT; debut += taille) {
+                for (int k = 0; k < moitie; k++) {
+                    double wr = cosinus[k * pas];
+                    double wi = sinus[k * pas];
+                    int u = debut + k;
+                    int v = u + moitie;
+                    double xr = reel[v] * wr - imaginaire[v] * wi;
+                    double xi = reel[v] * wi + imaginaire[v] * wr;
+                    reel[v] = reel[u] - xr;
+                    imaginaire[v] = imaginaire[u] - xi;
+                    reel[u] += xr;
+                    imaginaire[u] += xi;
+                }
+            }
+        }
+    }
+}
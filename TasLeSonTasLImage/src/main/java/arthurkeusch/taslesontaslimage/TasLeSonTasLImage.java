@@ -3,6 +3,7 @@ package arthurkeusch.taslesontaslimage;
 import arthurkeusch.taslesontaslimage.views.ErrorDialogView;
 import arthurkeusch.taslesontaslimage.views.SelectionView;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
@@ -10,21 +11,19 @@ import javafx.scene.control.Label;
 import javafx.scene.control.ProgressBar;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import javafx.scene.input.KeyCode;
 import javafx.scene.layout.*;
 import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
-import org.opencv.core.Core;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.IOException;
 import java.text.Normalizer;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
-import java.util.Objects;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * La classe principale de l'application qui gère le mode image et vidéo,
@@ -33,19 +32,27 @@ import java.util.concurrent.TimeUnit;
 public class TasLeSonTasLImage extends Application {
 
     /**
-     * L'index actuel de l'image affichée.
+     * L'index actuel de l'image affichée. Il est modifié sous {@link #pauseLock} et lu sans verrou
+     * par le thread de lecture.
      */
-    private int currentIndex = 0;
+    private volatile int currentIndex = 0;
 
     /**
-     * La liste des fichiers d'images à afficher.
+     * Les images à afficher et à convertir en son.
      */
-    private List<File> images;
+    private volatile SourceLecture source;
 
     /**
-     * L'objet responsable de la création du son pour chaque image.
+     * L'objet responsable de la création du son pour chaque image, construit en arrière-plan au démarrage
+     * (voir {@link #initialiser()}). La lecture démarre lorsqu'il est prêt, sans bloquer le thread JavaFX.
      */
-    private final CreationAudio creationAudio = new CreationAudio(64, 64, 200, 3000, 44100);
+    private final CompletableFuture<CreationAudio> initialisationAudio = new CompletableFuture<>();
+
+    /**
+     * Durée maximale (en millisecondes) entre le lancement et l'affichage de la première fenêtre,
+     * modifiable avec {@code -Dtaslesontaslimage.budgetDemarrage=<ms>}. Un dépassement est signalé dans la console.
+     */
+    private static final long BUDGET_DEMARRAGE = Long.getLong("taslesontaslimage.budgetDemarrage", 1500);
 
     /**
      * L'objet responsable du traitement des images.
@@ -57,6 +64,45 @@ public class TasLeSonTasLImage extends Application {
      */
     private final TraitementVideo traitementVideo = new TraitementVideo();
 
+    /**
+     * Cache persistant des matrices du dossier d'images ouvert, ou null. Utilisé uniquement sur le thread JavaFX.
+     */
+    private CacheMatrices cacheMatrices;
+
+    /**
+     * Index du dossier d'images ouvert, surveillé pendant la lecture, ou null. Utilisé uniquement sur le thread JavaFX.
+     */
+    private IndexDossier indexDossier;
+
+    /**
+     * Durée (en millisecondes) pendant laquelle une image illisible reste affichée avant de passer à la suivante,
+     * proche de la durée du son d'une image.
+     */
+    private static final long DUREE_IMAGE_IGNOREE = 1000;
+
+    /**
+     * Nombre maximal d'images extraites en attente dans le pipeline vidéo.
+     */
+    private static final int CAPACITE_PIPELINE = 16;
+
+    /**
+     * Avance maximale (en images) de l'extraction vidéo sur la position de lecture.
+     */
+    private static final int FENETRE_LECTURE = 32;
+
+    /**
+     * Nombre d'images vidéo conservées en mémoire avant la position de lecture ; les images plus anciennes
+     * sont décodées à nouveau si l'on revient sur elles.
+     */
+    private static final int RETENUE_VIDEO = 32;
+
+    /**
+     * Fréquence d'extraction des images en mode vidéo : une image par seconde par défaut,
+     * modifiable avec {@code -Dtaslesontaslimage.echantillonnage=natif|<n>/s|1/<k>}.
+     */
+    private static final Echantillonnage ECHANTILLONNAGE =
+            Echantillonnage.lire(System.getProperty("taslesontaslimage.echantillonnage", "1/s"));
+
     /**
      * Indicateur de l'état de lecture (lecture ou pause).
      */
@@ -72,6 +118,32 @@ public class TasLeSonTasLImage extends Application {
      */
     private Thread playbackThread;
 
+    /**
+     * Nombre d'images préparées en arrière-plan au-delà de l'image en cours de lecture.
+     */
+    private static final int PROFONDEUR_PRECHARGEMENT = 4;
+
+    /**
+     * Le préchargeur qui prépare les images suivantes pendant la lecture.
+     */
+    private Prechargeur prechargeur;
+
+    /**
+     * Nombre d'images à afficher conservées autour de l'image en cours de lecture.
+     */
+    private static final int CAPACITE_AFFICHAGE = 16;
+
+    /**
+     * Le chargeur des images à afficher.
+     */
+    private ChargeurAffichage chargeurAffichage;
+
+    /**
+     * Le thread qui prépare la source de lecture : extraction des images de la vidéo pendant la lecture,
+     * ou indexation du dossier d'images.
+     */
+    private Thread extractionThread;
+
     /**
      * Méthode principale pour démarrer l'application.
      *
@@ -79,8 +151,6 @@ public class TasLeSonTasLImage extends Application {
      */
     @Override
     public void start(Stage primaryStage) {
-        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
-
         SelectionView selectionView = new SelectionView(
                 () -> startImageMode(primaryStage),
                 () -> startVideoMode(primaryStage)
@@ -93,10 +163,76 @@ public class TasLeSonTasLImage extends Application {
         primaryStage.setHeight(768);
 
         primaryStage.show();
+        mesurerDemarrage();
+        initialiser();
+    }
+
+    /**
+     * Initialise en arrière-plan, pendant que le menu est affiché, ce qui n'est pas nécessaire à l'affichage
+     * de la première fenêtre : la bibliothèque native OpenCV, le moteur de synthèse et la ligne audio.
+     */
+    private void initialiser() {
+        Thread thread = new Thread(() -> {
+            long debut = System.nanoTime();
+            EvenementEtape evenement = Mesures.debut();
+            try {
+                BibliothequeNative.charger();
+                CreationAudio audio = new CreationAudio(64, 64, 200, 3000, 44100);
+                audio.preparer();
+                initialisationAudio.complete(audio);
+            } catch (RuntimeException | LinkageError e) {
+                initialisationAudio.completeExceptionally(e);
+                e.printStackTrace();
+            } finally {
+                Mesures.fin(evenement, Etape.INITIALISATION, -1, 0);
+            }
+            System.out.printf("Initialisation terminée en %.1f ms%n", (System.nanoTime() - debut) / 1e6);
+        }, "initialisation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Affiche le temps écoulé entre le lancement du processus et l'affichage de la première fenêtre,
+     * et signale un dépassement de {@link #BUDGET_DEMARRAGE}.
+     */
+    private static void mesurerDemarrage() {
+        ProcessHandle.current().info().startInstant().ifPresent(lancement -> {
+            long duree = Duration.between(lancement, Instant.now()).toMillis();
+            System.out.println("Première fenêtre affichée " + duree + " ms après le lancement");
+            if (duree > BUDGET_DEMARRAGE) {
+                System.out.println("Budget de démarrage dépassé : " + duree + " ms pour " + BUDGET_DEMARRAGE + " ms");
+            }
+        });
+    }
+
+    /**
+     * Arrête la lecture et libère la sortie audio à la fermeture de l'application.
+     */
+    @Override
+    public void stop() {
+        stopPlayback();
+        stopExtraction();
+        CreationAudio audio = audioInitialise();
+        if (audio != null) {
+            FluxAudio flux = audio.getFluxOuvert();
+            if (flux != null) {
+                System.out.println("Sortie audio : " + flux);
+            }
+            audio.fermer();
+            System.out.println("Sons réutilisés : " + audio.getDetecteurDoublons());
+            System.out.println("Cache des sons : " + audio.getCacheSons());
+        }
+        fermerIndexDossier();
+        fermerCacheMatrices();
+        System.out.print(Mesures.resume());
     }
 
     /**
      * Démarre le mode image où l'utilisateur peut sélectionner un dossier contenant des images.
+     * Le dossier est indexé en arrière-plan, puis surveillé : les images qui y sont créées pendant la lecture
+     * sont ajoutées à la suite. L'index et le cache ouverts sont transmis au thread JavaFX, qui les abandonne
+     * si l'utilisateur est revenu au menu ou a choisi une autre source entre-temps.
      *
      * @param primaryStage Le stage principal de l'application.
      */
@@ -107,14 +243,68 @@ public class TasLeSonTasLImage extends Application {
         File folder = directoryChooser.showDialog(primaryStage);
 
         if (folder != null && folder.isDirectory()) {
-            images = getImagesFromFolder(folder);
+            afficherProgression(primaryStage);
+
+            stopExtraction();
+            fermerIndexDossier();
+            fermerCacheMatrices();
+            extractionThread = new Thread(() -> {
+                Thread indexation = Thread.currentThread();
+                IndexDossier index;
+                try {
+                    index = IndexDossier.ouvrir(folder);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    Platform.runLater(() -> {
+                        if (extractionThread == indexation) {
+                            resetToMainMenu(primaryStage);
+                        }
+                    });
+                    return;
+                }
 
-            if (images.isEmpty()) {
-                System.out.println("Aucune image trouvée dans le dossier sélectionné !");
-                return;
-            }
+                if (index.isEmpty()) {
+                    System.out.println("Aucune image trouvée dans le dossier sélectionné !");
+                    fermer(index);
+                    Platform.runLater(() -> {
+                        if (extractionThread == indexation) {
+                            resetToMainMenu(primaryStage);
+                        }
+                    });
+                    return;
+                }
+
+                CacheMatrices cache = null;
+                try {
+                    cache = CacheMatrices.ouvrir(folder);
+                } catch (IOException e) {
+                    System.out.println("Cache des matrices indisponible : " + e.getMessage());
+                }
+                try {
+                    index.surveiller();
+                } catch (IOException e) {
+                    System.out.println("Surveillance du dossier indisponible : " + e.getMessage());
+                }
 
-            setupPlaybackScene(primaryStage);
+                CacheMatrices cacheOuvert = cache;
+                if (indexation.isInterrupted()) {
+                    fermer(index);
+                    fermer(cacheOuvert);
+                    return;
+                }
+                Platform.runLater(() -> {
+                    if (extractionThread != indexation) {
+                        fermer(index);
+                        fermer(cacheOuvert);
+                        return;
+                    }
+                    indexDossier = index;
+                    cacheMatrices = cacheOuvert;
+                    source = new SourceImages(index, traitementImage, cacheOuvert);
+                    setupPlaybackScene(primaryStage);
+                });
+            }, "indexation-dossier");
+            extractionThread.start();
         } else {
             System.out.println("Dossier invalide ou non sélectionné !");
         }
@@ -136,63 +326,38 @@ public class TasLeSonTasLImage extends Application {
             if (containsSpecialCharacters(videoFile.getName())) {
                 String errorMessage = "Erreur : Impossible de lire la vidéo. Le nom contient des caractères spéciaux non supportés : " + videoFile.getName();
                 System.out.println(errorMessage);
-                javafx.application.Platform.runLater(() -> {
+                Platform.runLater(() -> {
                     new ErrorDialogView("Erreur", errorMessage).show();
                     resetToMainMenu(primaryStage);
                 });
                 return;
             }
 
-            ProgressBar progressBar = new ProgressBar(0);
-            progressBar.setMinWidth(300);
-            javafx.application.Platform.runLater(() -> {
-                VBox progressLayout = new VBox(10, new Label("Traitement en cours..."), progressBar);
-                progressLayout.setAlignment(Pos.CENTER);
-                Scene progressScene = new Scene(progressLayout, 400, 200);
-                primaryStage.setScene(progressScene);
-            });
-
-            new Thread(() -> {
-                int duree = traitementVideo.obtenirDureeVideo(videoFile.getAbsolutePath());
-                int nbThreads = Runtime.getRuntime().availableProcessors();
-                int framesPerThread = (int) Math.ceil((double) duree / nbThreads);
-
-                ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
-                int[] completedFrames = {0};
-
-                for (int i = 0; i < nbThreads; i++) {
-                    final int start = i * framesPerThread;
-                    final int end = Math.min((i + 1) * framesPerThread, duree);
-
-                    executor.submit(() -> {
-                        for (int second = start; second < end; second++) {
-                            traitementVideo.traiterSegment(videoFile.getAbsolutePath(), second, second + 1);
-                            synchronized (completedFrames) {
-                                completedFrames[0]++;
-                                double progress = (double) completedFrames[0] / duree;
-                                javafx.application.Platform.runLater(() -> progressBar.setProgress(progress));
-                            }
-                        }
-                    });
-                }
-
-                executor.shutdown();
-                try {
-                    executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-
-                File folder = new File("src/main/imagesVideo");
-                images = getImagesFromFolder(folder);
+            afficherProgression(primaryStage);
+
+            stopExtraction();
+            extractionThread = new Thread(() -> {
+                int nombre = traitementVideo.obtenirNombreEchantillons(videoFile.getAbsolutePath(), ECHANTILLONNAGE);
+                // -Dtaslesontaslimage.imagesVideo=<dossier> enregistre aussi les images extraites en JPEG.
+                PipelineVideo pipeline = new PipelineVideo(traitementVideo, CAPACITE_PIPELINE, FENETRE_LECTURE,
+                        System.getProperty("taslesontaslimage.imagesVideo"));
+                SourceVideo sourceVideo = new SourceVideo(FENETRE_LECTURE, RETENUE_VIDEO,
+                        echantillon -> pipeline.relire(videoFile.getAbsolutePath(), ECHANTILLONNAGE, echantillon));
+
+                // La lecture démarre dès la première image, pendant que la suite de la vidéo est extraite.
+                pipeline.extraire(videoFile.getAbsolutePath(), ECHANTILLONNAGE, nombre, frame -> {
+                    if (sourceVideo.ajouter(frame) && sourceVideo.taille() == 1) {
+                        source = sourceVideo;
+                        Platform.runLater(() -> setupPlaybackScene(primaryStage));
+                    }
+                });
+                sourceVideo.terminer();
 
-                if (images.isEmpty()) {
+                if (sourceVideo.taille() == 0 && !Thread.currentThread().isInterrupted()) {
                     System.out.println("Aucune image extraite de la vidéo sélectionnée !");
-                    return;
                 }
-
-                javafx.application.Platform.runLater(() -> setupPlaybackScene(primaryStage));
-            }).start();
+            }, "extraction-video");
+            extractionThread.start();
         } else {
             System.out.println("Fichier vidéo invalide ou non sélectionné !");
         }
@@ -209,18 +374,15 @@ public class TasLeSonTasLImage extends Application {
         BorderPane mainLayout = new BorderPane();
 
         Button backButton = new Button("Retour");
-        backButton.setOnAction(event -> {
-            stopPlayback();
-            resetToMainMenu(primaryStage);
-        });
+        backButton.setOnAction(event -> retourAuMenu(primaryStage));
         HBox topBar = new HBox(backButton);
         topBar.setStyle("-fx-padding: 10px; -fx-alignment: center-left;");
         mainLayout.setTop(topBar);
 
         ImageView imageView = new ImageView();
         imageView.setPreserveRatio(true);
-        imageView.setFitWidth(500);
-        imageView.setFitHeight(500);
+        imageView.setFitWidth(SourceLecture.TAILLE_AFFICHAGE);
+        imageView.setFitHeight(SourceLecture.TAILLE_AFFICHAGE);
         StackPane centerPane = new StackPane(imageView);
         centerPane.setStyle("-fx-padding: 20px;");
         mainLayout.setCenter(centerPane);
@@ -232,8 +394,12 @@ public class TasLeSonTasLImage extends Application {
         prevButton.setGraphic(prevIcon);
         prevButton.setOnAction(event -> {
             synchronized (pauseLock) {
-                currentIndex = (currentIndex - 1 + images.size()) % images.size();
+                currentIndex = (currentIndex - 1 + source.taille()) % source.taille();
+                annulerSon();
                 updateImage(imageView);
+                if (prechargeur != null) {
+                    prechargeur.cibler(currentIndex);
+                }
                 pauseLock.notifyAll();
             }
         });
@@ -264,8 +430,15 @@ public class TasLeSonTasLImage extends Application {
         nextButton.setGraphic(nextIcon);
         nextButton.setOnAction(event -> {
             synchronized (pauseLock) {
-                currentIndex = (currentIndex + 1) % images.size();
+                if (currentIndex + 1 >= source.taille() && !source.estComplete()) {
+                    return;
+                }
+                currentIndex = (currentIndex + 1) % source.taille();
+                annulerSon();
                 updateImage(imageView);
+                if (prechargeur != null) {
+                    prechargeur.cibler(currentIndex);
+                }
                 pauseLock.notifyAll();
             }
         });
@@ -278,23 +451,62 @@ public class TasLeSonTasLImage extends Application {
         mainLayout.setCenter(imageView);
         mainLayout.setBottom(navigationBox);
         mainLayout.getStylesheets().add("file:src/main/resources/styles.css");
+        // La touche M affiche à la demande le résumé des durées de chaque étape.
+        mainLayout.setOnKeyPressed(event -> {
+            if (event.getCode() == KeyCode.M) {
+                System.out.print(Mesures.resume());
+            }
+        });
 
         primaryStage.getScene().setRoot(mainLayout);
 
         currentIndex = 0;
         isPlaying = true;
 
+        chargeurAffichage = new ChargeurAffichage(source, CAPACITE_AFFICHAGE, PROFONDEUR_PRECHARGEMENT);
         updateImage(imageView);
         playAllImages(imageView, primaryStage);
     }
 
     /**
-     * Démarre la lecture de toutes les images et la génération des sons associés.
+     * Démarre la lecture de toutes les images et la génération des sons associés, dès que l'initialisation
+     * de l'audio est terminée. L'attente a lieu hors du thread JavaFX ; si l'initialisation a échoué,
+     * une erreur est affichée et l'application revient au menu.
      *
      * @param imageView    L'objet ImageView pour afficher les images.
      * @param primaryStage Le stage principal de l'application.
      */
     private void playAllImages(ImageView imageView, Stage primaryStage) {
+        ChargeurAffichage chargeurAffichageLecture = chargeurAffichage;
+        initialisationAudio.whenCompleteAsync((audio, erreur) -> {
+            if (chargeurAffichage != chargeurAffichageLecture) {
+                // La lecture a été arrêtée pendant l'initialisation.
+                return;
+            }
+            if (erreur != null) {
+                new ErrorDialogView("Erreur", "Impossible d'initialiser l'audio : " + erreur.getMessage()).show();
+                retourAuMenu(primaryStage);
+                return;
+            }
+            demarrerLecture(audio, imageView);
+        }, Platform::runLater);
+    }
+
+    /**
+     * Lance le thread de lecture. Les images sont lues l'une après l'autre ; pendant qu'une image est jouée,
+     * les suivantes sont préparées en arrière-plan, de sorte qu'aucun calcul ne retarde le passage à l'image
+     * suivante.
+     *
+     * @param audio     L'objet responsable de la création du son.
+     * @param imageView L'objet ImageView pour afficher les images.
+     */
+    private void demarrerLecture(CreationAudio audio, ImageView imageView) {
+        SourceLecture sourceLecture = source;
+        Prechargeur prechargeurLecture = new Prechargeur(sourceLecture, audio, PROFONDEUR_PRECHARGEMENT,
+                Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+        prechargeur = prechargeurLecture;
+        ChargeurAffichage chargeurAffichageLecture = chargeurAffichage;
+
         playbackThread = new Thread(() -> {
             try {
                 while (true) {
@@ -304,12 +516,33 @@ public class TasLeSonTasLImage extends Application {
                         }
                     }
 
-                    File imageFile = images.get(currentIndex);
-                    javafx.application.Platform.runLater(() -> imageView.setImage(new Image(imageFile.toURI().toString())));
+                    int indice = currentIndex;
+                    Mesures.imageCourante(indice);
+                    Prechargeur.ImagePrete image;
+                    try {
+                        image = prechargeurLecture.obtenir(indice);
+                    } catch (RuntimeException e) {
+                        // Image illisible ou sortie de la source : elle est passée, après une pause équivalente.
+                        System.out.println("Image " + indice + " ignorée : " + e.getMessage());
+                        image = null;
+                    }
+                    chargeurAffichageLecture.afficher(indice, imageView::setImage);
+                    sourceLecture.positionnerLecture(indice);
+
+                    if (image == null) {
+                        Thread.sleep(DUREE_IMAGE_IGNOREE);
+                    } else {
+                        synchronized (audio) {
+                            if (currentIndex == indice) {
+                                audio.jouerImage(image.matrice());
+                            }
+                        }
+                    }
 
-                    synchronized (creationAudio) {
-                        if (images.get(currentIndex).equals(imageFile)) {
-                            creationAudio.generateAndPlaySound(traitementImage.traitement(imageFile.getAbsolutePath()));
+                    boolean suivanteDisponible = sourceLecture.attendre(indice + 1);
+                    synchronized (pauseLock) {
+                        if (currentIndex == indice && isPlaying) {
+                            currentIndex = suivanteDisponible ? indice + 1 : 0;
                         }
                     }
                 }
@@ -327,6 +560,15 @@ public class TasLeSonTasLImage extends Application {
         if (playbackThread != null && playbackThread.isAlive()) {
             playbackThread.interrupt();
         }
+        annulerSon();
+        if (prechargeur != null) {
+            prechargeur.fermer();
+            prechargeur = null;
+        }
+        if (chargeurAffichage != null) {
+            chargeurAffichage.fermer();
+            chargeurAffichage = null;
+        }
         synchronized (pauseLock) {
             isPlaying = false;
             pauseLock.notifyAll();
@@ -334,6 +576,117 @@ public class TasLeSonTasLImage extends Application {
         playbackThread = null;
     }
 
+    /**
+     * Coupe le son en cours : les échantillons déjà écrits dans le flux audio sont abandonnés, et l'écriture
+     * du son de l'image précédente s'arrête aussitôt.
+     */
+    private void annulerSon() {
+        CreationAudio audio = audioInitialise();
+        FluxAudio flux = audio == null ? null : audio.getFluxOuvert();
+        if (flux != null) {
+            flux.annuler();
+        }
+    }
+
+    /**
+     * Retourne l'objet de création du son s'il a été initialisé, sans attendre.
+     *
+     * @return L'objet de création du son, ou null si l'initialisation est en cours ou a échoué.
+     */
+    private CreationAudio audioInitialise() {
+        if (!initialisationAudio.isDone() || initialisationAudio.isCompletedExceptionally()) {
+            return null;
+        }
+        return initialisationAudio.join();
+    }
+
+    /**
+     * Arrête l'extraction vidéo en cours, s'il y en a une.
+     */
+    private void stopExtraction() {
+        if (extractionThread != null && extractionThread.isAlive()) {
+            extractionThread.interrupt();
+        }
+        extractionThread = null;
+    }
+
+    /**
+     * Arrête la lecture et la préparation de la source, libère le dossier d'images et son cache,
+     * puis revient au menu principal.
+     *
+     * @param primaryStage Le stage principal de l'application.
+     */
+    private void retourAuMenu(Stage primaryStage) {
+        stopPlayback();
+        stopExtraction();
+        fermerIndexDossier();
+        fermerCacheMatrices();
+        resetToMainMenu(primaryStage);
+    }
+
+    /**
+     * Ferme un index ou un cache qui n'a pas été transmis au thread JavaFX.
+     *
+     * @param ressource L'index ou le cache à fermer, ou null.
+     */
+    private static void fermer(Closeable ressource) {
+        if (ressource == null) {
+            return;
+        }
+        try {
+            ressource.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Arrête la surveillance du dossier d'images, s'il y en a un d'ouvert.
+     */
+    private void fermerIndexDossier() {
+        if (indexDossier == null) {
+            return;
+        }
+        try {
+            indexDossier.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        indexDossier = null;
+    }
+
+    /**
+     * Ferme le cache persistant des matrices, s'il est ouvert.
+     */
+    private void fermerCacheMatrices() {
+        if (cacheMatrices == null) {
+            return;
+        }
+        System.out.println("Cache des matrices : " + cacheMatrices);
+        try {
+            cacheMatrices.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        cacheMatrices = null;
+    }
+
+    /**
+     * Affiche une barre de progression pendant la préparation de la source de lecture.
+     *
+     * @param primaryStage Le stage principal de l'application.
+     */
+    private void afficherProgression(Stage primaryStage) {
+        ProgressBar progressBar = new ProgressBar();
+        progressBar.setMinWidth(300);
+        Platform.runLater(() -> {
+            VBox progressLayout = new VBox(10, new Label("Traitement en cours..."), progressBar);
+            progressLayout.setAlignment(Pos.CENTER);
+            Scene progressScene = new Scene(progressLayout, 400, 200);
+            primaryStage.setScene(progressScene);
+        });
+    }
+
     /**
      * Réinitialise le menu principal.
      *
@@ -359,54 +712,12 @@ public class TasLeSonTasLImage extends Application {
     }
 
     /**
-     * Met à jour l'image affichée dans le ImageView.
+     * Met à jour l'image affichée dans le ImageView. L'image est chargée en arrière-plan :
+     * le thread JavaFX n'attend jamais son décodage.
      *
      * @param imageView L'objet ImageView pour afficher l'image.
      */
     private void updateImage(ImageView imageView) {
-        File imageFile = images.get(currentIndex);
-        Image image = new Image(imageFile.toURI().toString());
-        javafx.application.Platform.runLater(() -> imageView.setImage(image));
-    }
-
-    /**
-     * Récupère la liste des fichiers image dans un dossier donné.
-     *
-     * @param folder Le dossier contenant les images.
-     * @return La liste des fichiers image trouvés.
-     */
-    private List<File> getImagesFromFolder(File folder) {
-        List<File> imageFiles = new ArrayList<>();
-        if (folder.exists() && folder.isDirectory()) {
-            for (File file : Objects.requireNonNull(folder.listFiles())) {
-                if (file.isFile() && (file.getName().endsWith(".png") || file.getName().endsWith(".jpg") || file.getName().endsWith(".jpeg"))) {
-                    imageFiles.add(file);
-                }
-            }
-        }
-        imageFiles.sort(Comparator.comparing(file -> extractNumber(file.getName())));
-        return imageFiles;
-    }
-
-    /**
-     * Extrait un nombre d'un nom de fichier.
-     *
-     * @param fileName Le nom du fichier.
-     * @return Le nombre extrait du nom du fichier.
-     */
-    private int extractNumber(String fileName) {
-        String number = fileName.replaceAll("\\D", "");
-        try {
-            if (number.isEmpty()) {
-                return 0;
-            }
-            long parsedNumber = Long.parseLong(number);
-            if (parsedNumber > Integer.MAX_VALUE) {
-                return Integer.MAX_VALUE;
-            }
-            return (int) parsedNumber;
-        } catch (NumberFormatException e) {
-            return 0;
-        }
+        chargeurAffichage.afficher(currentIndex, imageView::setImage);
     }
 }
@@ -1,13 +1,53 @@
 package arthurkeusch.taslesontaslimage;
 
 import org.opencv.core.Mat;
+import org.opencv.core.Size;
 import org.opencv.imgcodecs.Imgcodecs;
 import org.opencv.imgproc.Imgproc;
 
-import java.util.ArrayList;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
 
 public class TraitementImage {
 
+    /**
+     * Taille (en pixels) des côtés de la matrice compressée.
+     */
+    public static final int TAILLE_COMPRESSEE = 64;
+
+    /**
+     * Nombre de niveaux de gris de la matrice compressée.
+     */
+    public static final int NIVEAUX_GRIS = 16;
+
+    /**
+     * Rapport minimal entre la taille de l'image décodée et la taille de la matrice compressée.
+     * Avec une image décodée au moins quatre fois plus grande que la cible, le résultat après
+     * {@link Imgproc#INTER_AREA} diffère d'au plus un niveau de gris (sur 16) de celui obtenu
+     * à partir de l'image en pleine résolution.
+     */
+    private static final int MARGE_REDUCTION = 4;
+
+    /**
+     * Description de la chaîne qui produit les matrices compressées : décodage réduit, interpolation
+     * et quantification. Toute modification de l'une de ces étapes doit la changer, pour que les matrices
+     * déjà enregistrées par {@link CacheMatrices} soient recalculées.
+     */
+    static final String DESCRIPTION_CHAINE = "décodage en niveaux de gris réduit avec une marge de " + MARGE_REDUCTION
+            + " ; Imgproc.INTER_AREA vers " + TAILLE_COMPRESSEE + "x" + TAILLE_COMPRESSEE
+            + " ; quantification (v * " + (NIVEAUX_GRIS - 1) + ") / 255";
+
+    /**
+     * Empreinte de {@link #DESCRIPTION_CHAINE}, enregistrée dans l'en-tête de {@link CacheMatrices}.
+     */
+    public static final long EMPREINTE_CHAINE =
+            CacheSons.empreinte(DESCRIPTION_CHAINE.getBytes(StandardCharsets.UTF_8));
+
     /**
      * Convertit une image donnée en niveaux de gris.
      *
@@ -16,29 +56,12 @@ public class TraitementImage {
      * @throws IllegalArgumentException Si l'image ne peut pas être chargée depuis le chemin spécifié.
      */
     public static ImageMatrice convertirEnNiveauxDeGris(String cheminImage) {
-        Mat matImage = Imgcodecs.imread(cheminImage);
-        if (matImage.empty()) {
-            throw new IllegalArgumentException("Impossible de charger l'image : " + cheminImage);
-        }
-
-        Mat matGris = new Mat();
-        Imgproc.cvtColor(matImage, matGris, Imgproc.COLOR_BGR2GRAY);
-
-        int largeur = matGris.cols();
-        int hauteur = matGris.rows();
-
-        ArrayList<ArrayList<Integer>> pixelsGris = new ArrayList<>();
-        for (int y = 0; y < hauteur; y++) {
-            ArrayList<Integer> ligne = new ArrayList<>();
-            for (int x = 0; x < largeur; x++) {
-                double[] pixel = matGris.get(y, x);
-                int gris = (int) pixel[0];
-                ligne.add(gris);
-            }
-            pixelsGris.add(ligne);
+        Mat matGris = lireEnNiveauxDeGris(cheminImage);
+        try {
+            return ConversionMat.versImageMatrice(matGris);
+        } finally {
+            matGris.release();
         }
-
-        return new ImageMatrice(pixelsGris);
     }
 
     /**
@@ -49,54 +72,173 @@ public class TraitementImage {
      * @return Une instance d'ImageMatrice contenant les valeurs compressées.
      */
     public static ImageMatrice compresserEn64x64(ImageMatrice imageOriginale) {
-        Mat matOriginale = getMatrice(imageOriginale);
+        Mat matOriginale = ConversionMat.versMat(imageOriginale);
+        try {
+            return compresser(matOriginale);
+        } finally {
+            matOriginale.release();
+        }
+    }
 
+    /**
+     * Compresse une matrice OpenCV en niveaux de gris en une ImageMatrice de 64x64 pixels à 16 niveaux,
+     * sans jamais copier l'image en pleine résolution côté Java.
+     *
+     * @param matGris La matrice en niveaux de gris à compresser.
+     * @return Une instance d'ImageMatrice contenant les valeurs compressées.
+     */
+    public static ImageMatrice compresser(Mat matGris) {
+        EvenementEtape evenement = Mesures.debut();
         Mat mat64x64 = new Mat();
-        org.opencv.core.Size taille64x64 = new org.opencv.core.Size(64, 64);
-        Imgproc.resize(matOriginale, mat64x64, taille64x64, 0, 0, Imgproc.INTER_AREA);
-
-        ArrayList<ArrayList<Integer>> pixelsCompressee = new ArrayList<>();
-        for (int y = 0; y < 64; y++) {
-            ArrayList<Integer> ligne = new ArrayList<>();
-            for (int x = 0; x < 64; x++) {
-                int gris = (int) mat64x64.get(y, x)[0];
-                int niveauGris = (gris * 15) / 255;
-                ligne.add(niveauGris);
-            }
-            pixelsCompressee.add(ligne);
+        try {
+            Size taille64x64 = new Size(TAILLE_COMPRESSEE, TAILLE_COMPRESSEE);
+            Imgproc.resize(matGris, mat64x64, taille64x64, 0, 0, Imgproc.INTER_AREA);
+            return ConversionMat.quantifier(mat64x64, NIVEAUX_GRIS);
+        } finally {
+            mat64x64.release();
+            Mesures.fin(evenement, Etape.REDUCTION, taille(matGris));
         }
+    }
 
-        return new ImageMatrice(pixelsCompressee);
+    /**
+     * Compresse une image couleur OpenCV (par exemple une image extraite d'une vidéo) en une ImageMatrice
+     * de 64x64 pixels à 16 niveaux.
+     *
+     * @param matCouleur La matrice couleur au format BGR.
+     * @return Une instance d'ImageMatrice contenant les valeurs compressées.
+     */
+    public static ImageMatrice compresserCouleur(Mat matCouleur) {
+        Mat matGris = new Mat();
+        try {
+            EvenementEtape evenement = Mesures.debut();
+            Imgproc.cvtColor(matCouleur, matGris, Imgproc.COLOR_BGR2GRAY);
+            Mesures.fin(evenement, Etape.NIVEAUX_GRIS, taille(matCouleur));
+            return compresser(matGris);
+        } finally {
+            matGris.release();
+        }
+    }
+
+    /**
+     * Choisit le mode de décodage OpenCV le plus économique pour une image destinée à être réduite.
+     * L'image est toujours décodée directement en niveaux de gris ; elle est en plus réduite de 2, 4 ou 8
+     * dès le décodage si elle reste au moins {@value #MARGE_REDUCTION} fois plus grande que la cible.
+     *
+     * @param largeur Largeur de l'image source (en pixels), ou une valeur négative si elle est inconnue.
+     * @param hauteur Hauteur de l'image source (en pixels), ou une valeur négative si elle est inconnue.
+     * @param cible   Taille (en pixels) des côtés de la matrice visée.
+     * @return Le drapeau {@link Imgcodecs} à passer à {@link Imgcodecs#imread(String, int)}.
+     */
+    public static int choisirModeLecture(int largeur, int hauteur, int cible) {
+        int cote = Math.min(largeur, hauteur);
+        int minimum = cible * MARGE_REDUCTION;
+        if (cote >= minimum * 8) {
+            return Imgcodecs.IMREAD_REDUCED_GRAYSCALE_8;
+        }
+        if (cote >= minimum * 4) {
+            return Imgcodecs.IMREAD_REDUCED_GRAYSCALE_4;
+        }
+        if (cote >= minimum * 2) {
+            return Imgcodecs.IMREAD_REDUCED_GRAYSCALE_2;
+        }
+        return Imgcodecs.IMREAD_GRAYSCALE;
     }
 
     /**
-     * Convertit une instance d'ImageMatrice en une matrice OpenCV ({@link Mat}).
+     * Lit les dimensions d'une image depuis son en-tête, sans décoder les pixels.
      *
-     * @param imageOriginale L'image source sous forme d'ImageMatrice.
-     * @return La matrice correspondante sous forme d'un objet OpenCV {@link Mat}.
+     * @param cheminImage Chemin absolu de l'image.
+     * @return Un tableau {largeur, hauteur}, ou {-1, -1} si le format n'est pas reconnu.
      */
-    private static Mat getMatrice(ImageMatrice imageOriginale) {
-        ArrayList<ArrayList<Integer>> pixelsOriginaux = imageOriginale.getImage();
-        int hauteurOriginale = pixelsOriginaux.size();
-        int largeurOriginale = pixelsOriginaux.getFirst().size();
-
-        Mat matOriginale = new Mat(hauteurOriginale, largeurOriginale, org.opencv.core.CvType.CV_8UC1);
-        for (int y = 0; y < hauteurOriginale; y++) {
-            for (int x = 0; x < largeurOriginale; x++) {
-                matOriginale.put(y, x, pixelsOriginaux.get(y).get(x));
+    private static int[] lireDimensions(String cheminImage) {
+        try (ImageInputStream entree = ImageIO.createImageInputStream(new File(cheminImage))) {
+            if (entree != null) {
+                Iterator<ImageReader> lecteurs = ImageIO.getImageReaders(entree);
+                if (lecteurs.hasNext()) {
+                    ImageReader lecteur = lecteurs.next();
+                    try {
+                        lecteur.setInput(entree, true, true);
+                        return new int[]{lecteur.getWidth(0), lecteur.getHeight(0)};
+                    } finally {
+                        lecteur.dispose();
+                    }
+                }
             }
+        } catch (IOException e) {
+            System.out.println("Impossible de lire l'en-tête de l'image : " + cheminImage);
         }
-        return matOriginale;
+        return new int[]{-1, -1};
+    }
+
+    /**
+     * Charge une image directement en niveaux de gris, réduite dès le décodage lorsque c'est possible.
+     *
+     * @param cheminImage Chemin absolu de l'image à charger.
+     * @param cible       Taille (en pixels) des côtés de la matrice visée.
+     * @return La matrice en niveaux de gris, à libérer par l'appelant.
+     * @throws IllegalArgumentException Si l'image ne peut pas être chargée depuis le chemin spécifié.
+     */
+    private static Mat lireReduite(String cheminImage, int cible) {
+        BibliothequeNative.charger();
+        EvenementEtape evenement = Mesures.debut();
+        int[] dimensions = lireDimensions(cheminImage);
+        Mat matGris = Imgcodecs.imread(cheminImage, choisirModeLecture(dimensions[0], dimensions[1], cible));
+        Mesures.fin(evenement, Etape.DECODAGE, taille(matGris));
+        if (matGris.empty()) {
+            throw new IllegalArgumentException("Impossible de charger l'image : " + cheminImage);
+        }
+        return matGris;
+    }
+
+    /**
+     * Charge une image et la convertit en niveaux de gris, sous forme de matrice OpenCV.
+     *
+     * @param cheminImage Chemin absolu de l'image à charger.
+     * @return La matrice en niveaux de gris, à libérer par l'appelant.
+     * @throws IllegalArgumentException Si l'image ne peut pas être chargée depuis le chemin spécifié.
+     */
+    private static Mat lireEnNiveauxDeGris(String cheminImage) {
+        BibliothequeNative.charger();
+        EvenementEtape evenement = Mesures.debut();
+        Mat matImage = Imgcodecs.imread(cheminImage);
+        Mesures.fin(evenement, Etape.DECODAGE, taille(matImage));
+        if (matImage.empty()) {
+            throw new IllegalArgumentException("Impossible de charger l'image : " + cheminImage);
+        }
+
+        evenement = Mesures.debut();
+        Mat matGris = new Mat();
+        Imgproc.cvtColor(matImage, matGris, Imgproc.COLOR_BGR2GRAY);
+        Mesures.fin(evenement, Etape.NIVEAUX_GRIS, taille(matImage));
+        matImage.release();
+        return matGris;
+    }
+
+    /**
+     * Retourne la taille (en octets) des pixels d'une matrice OpenCV.
+     *
+     * @param mat La matrice.
+     * @return Le nombre d'octets occupés par ses pixels.
+     */
+    private static long taille(Mat mat) {
+        return mat.total() * mat.elemSize();
     }
 
     /**
      * Méthode principale de traitement d'une image.
      * Convertit une image en niveaux de gris, puis la compresse en une matrice 64x64 pixels.
+     * L'image reste côté natif : seule la matrice compressée est copiée. Les grandes images sont décodées
+     * à résolution réduite (voir {@link #choisirModeLecture(int, int, int)}).
      *
      * @param cheminImage Chemin absolu de l'image à traiter.
      * @return Une instance d'ImageMatrice représentant l'image traitée.
      */
     public ImageMatrice traitement(String cheminImage) {
-        return compresserEn64x64(convertirEnNiveauxDeGris(cheminImage));
+        Mat matGris = lireReduite(cheminImage, TAILLE_COMPRESSEE);
+        try {
+            return compresser(matGris);
+        } finally {
+            matGris.release();
+        }
     }
 }
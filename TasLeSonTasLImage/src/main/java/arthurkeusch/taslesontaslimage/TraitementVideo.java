@@ -1,6 +1,5 @@
 package arthurkeusch.taslesontaslimage;
 
-import org.opencv.core.Core;
 import org.opencv.core.Mat;
 import org.opencv.videoio.VideoCapture;
 import org.opencv.videoio.Videoio;
@@ -13,6 +12,7 @@ import javax.imageio.stream.ImageOutputStream;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.function.BiConsumer;
 
 /**
  * Classe permettant de traiter une vidéo et d'extraire des images à intervalles réguliers.
@@ -20,14 +20,40 @@ import java.io.IOException;
 public class TraitementVideo {
 
     /**
-     * Traite un segment de la vidéo entre deux secondes spécifiques.
+     * Parcourt les images d'un segment de la vidéo, une par seconde, sans les enregistrer.
      *
-     * @param videoPath   Chemin de la vidéo à traiter.
-     * @param startSecond Seconde de début du segment.
-     * @param endSecond   Seconde de fin du segment.
+     * @param videoPath    Chemin de la vidéo à traiter.
+     * @param startSecond  Seconde de début du segment.
+     * @param endSecond    Seconde de fin du segment.
+     * @param consommateur Action appelée pour chaque image, avec sa seconde. La matrice est réutilisée
+     *                     pour l'image suivante : elle doit être copiée pour être conservée. Une exception
+     *                     levée par l'action interrompt le parcours et libère la vidéo.
      */
-    public void traiterSegment(String videoPath, int startSecond, int endSecond) {
-        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+    public void parcourirFrames(String videoPath, int startSecond, int endSecond, BiConsumer<Integer, Mat> consommateur) {
+        parcourirFrames(videoPath, Echantillonnage.UNE_PAR_SECONDE, startSecond, endSecond, consommateur);
+    }
+
+    /**
+     * Parcourt les échantillons d'un segment de la vidéo, sans les enregistrer.
+     * <p>
+     * La vidéo n'est ouverte et positionnée qu'une fois pour tout le segment, puis parcourue vers l'avant :
+     * les images entre deux échantillons sont seulement passées ({@link VideoCapture#grab()}) et seules
+     * les images échantillonnées sont décodées ({@link VideoCapture#retrieve(Mat)}).
+     * Un échantillonnage dans le temps demande de connaître le nombre d'images par seconde de la vidéo :
+     * s'il est inconnu, aucune image n'est transmise (et {@link #obtenirNombreEchantillons(String, Echantillonnage)}
+     * retourne 0).
+     *
+     * @param videoPath        Chemin de la vidéo à traiter.
+     * @param echantillonnage  Fréquence d'extraction des images.
+     * @param debutEchantillon Indice du premier échantillon du segment.
+     * @param finEchantillon   Indice suivant le dernier échantillon du segment.
+     * @param consommateur     Action appelée pour chaque image, avec l'indice de son échantillon. La matrice
+     *                         est réutilisée pour l'image suivante : elle doit être copiée pour être conservée.
+     *                         Une exception levée par l'action interrompt le parcours et libère la vidéo.
+     */
+    public void parcourirFrames(String videoPath, Echantillonnage echantillonnage, int debutEchantillon,
+                                int finEchantillon, BiConsumer<Integer, Mat> consommateur) {
+        BibliothequeNative.charger();
         VideoCapture videoCapture = new VideoCapture(videoPath);
 
         if (!videoCapture.isOpened()) {
@@ -35,20 +61,70 @@ public class TraitementVideo {
             return;
         }
 
+        double fps = videoCapture.get(Videoio.CAP_PROP_FPS);
         Mat frame = new Mat();
-        for (int seconde = startSecond; seconde < endSecond; seconde++) {
-            videoCapture.set(Videoio.CAP_PROP_POS_MSEC, seconde * 1000);
+        try {
+            if (fps <= 0 && echantillonnage.dependDuTemps()) {
+                System.out.println("Nombre d'images par seconde inconnu, impossible d'échantillonner à "
+                        + echantillonnage + " : " + videoPath);
+                return;
+            }
+            parcourirParIndice(videoCapture, fps, echantillonnage, debutEchantillon, finEchantillon, frame, consommateur);
+        } finally {
+            frame.release();
+            videoCapture.release();
+        }
+    }
+
+    /**
+     * Parcourt un segment en avançant image par image à partir d'un seul positionnement initial.
+     *
+     * @param videoCapture     La vidéo ouverte.
+     * @param fps              Nombre d'images par seconde de la vidéo.
+     * @param echantillonnage  Fréquence d'extraction des images.
+     * @param debutEchantillon Indice du premier échantillon du segment.
+     * @param finEchantillon   Indice suivant le dernier échantillon du segment.
+     * @param frame            La matrice recevant les images décodées.
+     * @param consommateur     Action appelée pour chaque image, avec l'indice de son échantillon.
+     */
+    private void parcourirParIndice(VideoCapture videoCapture, double fps, Echantillonnage echantillonnage,
+                                    int debutEchantillon, int finEchantillon, Mat frame,
+                                    BiConsumer<Integer, Mat> consommateur) {
+        long premiereImage = echantillonnage.indiceImage(debutEchantillon, fps);
+        if (premiereImage > 0) {
+            videoCapture.set(Videoio.CAP_PROP_POS_FRAMES, premiereImage);
+        }
+        // Certains lecteurs ignorent le positionnement : on repart de la position réellement atteinte.
+        long indiceCourant = Math.round(videoCapture.get(Videoio.CAP_PROP_POS_FRAMES));
+
+        for (int echantillon = debutEchantillon; echantillon < finEchantillon; echantillon++) {
+            EvenementEtape evenement = Mesures.debut();
+            long indiceCible = echantillonnage.indiceImage(echantillon, fps);
+            boolean trouvee = true;
+            while (indiceCourant < indiceCible && trouvee) {
+                trouvee = videoCapture.grab();
+                indiceCourant++;
+            }
 
-            if (videoCapture.read(frame) && !frame.empty()) {
-                BufferedImage image = matToBufferedImage(frame);
-                String outputPath = "src/main/imagesVideo/image_" + seconde + ".jpg";
-                saveImageWithCompression(image, outputPath);
+            if (trouvee && videoCapture.grab() && videoCapture.retrieve(frame) && !frame.empty()) {
+                indiceCourant++;
+                Mesures.fin(evenement, Etape.DECODAGE_VIDEO, echantillon, frame.total() * frame.elemSize());
+                consommateur.accept(echantillon, frame);
             } else {
-                System.out.println("Aucune image trouvée à la seconde " + seconde);
+                System.out.println("Aucune image trouvée pour l'échantillon " + echantillon + " (image " + indiceCible + ")");
+                return;
             }
         }
+    }
 
-        videoCapture.release();
+    /**
+     * Enregistre une image extraite de la vidéo en format JPEG avec compression.
+     *
+     * @param frame      L'image au format BGR.
+     * @param outputPath Le chemin du fichier de sortie.
+     */
+    public void enregistrerFrame(Mat frame, String outputPath) {
+        saveImageWithCompression(matToBufferedImage(frame), outputPath);
     }
 
     /**
@@ -62,12 +138,15 @@ public class TraitementVideo {
         int height = mat.height();
         int channels = mat.channels();
 
-        byte[] sourcePixels = new byte[width * height * channels];
-        mat.get(0, 0, sourcePixels);
-
         BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
         final byte[] targetPixels = ((java.awt.image.DataBufferByte) image.getRaster().getDataBuffer()).getData();
-        System.arraycopy(sourcePixels, 0, targetPixels, 0, sourcePixels.length);
+        if (channels == 3 && targetPixels.length == width * height * channels) {
+            mat.get(0, 0, targetPixels);
+        } else {
+            byte[] sourcePixels = new byte[width * height * channels];
+            mat.get(0, 0, sourcePixels);
+            System.arraycopy(sourcePixels, 0, targetPixels, 0, Math.min(sourcePixels.length, targetPixels.length));
+        }
 
         return image;
     }
@@ -100,10 +179,22 @@ public class TraitementVideo {
      * Obtenir la durée de la vidéo en secondes.
      *
      * @param videoPath Chemin de la vidéo.
-     * @return Durée de la vidéo en secondes.
+     * @return Durée de la vidéo en secondes, ou 0 si elle est inconnue.
      */
     public int obtenirDureeVideo(String videoPath) {
-        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+        return obtenirNombreEchantillons(videoPath, Echantillonnage.UNE_PAR_SECONDE);
+    }
+
+    /**
+     * Calcule le nombre d'échantillons d'une vidéo à partir de son nombre d'images
+     * ({@code CAP_PROP_FRAME_COUNT}) et de son nombre d'images par seconde ({@code CAP_PROP_FPS}).
+     *
+     * @param videoPath       Chemin de la vidéo.
+     * @param echantillonnage Fréquence d'extraction des images.
+     * @return Le nombre d'échantillons, ou 0 si la vidéo ne peut pas être ouverte ou si sa longueur est inconnue.
+     */
+    public int obtenirNombreEchantillons(String videoPath, Echantillonnage echantillonnage) {
+        BibliothequeNative.charger();
         VideoCapture videoCapture = new VideoCapture(videoPath);
 
         if (!videoCapture.isOpened()) {
@@ -111,11 +202,15 @@ public class TraitementVideo {
             return 0;
         }
 
-        double frameCount = videoCapture.get(Videoio.CAP_PROP_FRAME_COUNT);
+        long frameCount = Math.round(videoCapture.get(Videoio.CAP_PROP_FRAME_COUNT));
         double fps = videoCapture.get(Videoio.CAP_PROP_FPS);
 
         videoCapture.release();
 
-        return (int) Math.ceil(frameCount / fps);
+        if (frameCount <= 0 || (fps <= 0 && echantillonnage.dependDuTemps())) {
+            System.out.println("Longueur de la vidéo inconnue : " + videoPath);
+            return 0;
+        }
+        return echantillonnage.nombreEchantillons(frameCount, fps);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,32 @@
+package arthurkeusch.taslesontaslimage;
+
+/**
+ * Les moteurs de synthèse disponibles pour {@link CreationAudio}.
+ */
+public enum TypeSynthese {
+
+    /**
+     * Somme directe d'une sinusoïde par ligne : coût proportionnel au nombre de lignes actives.
+     */
+    ADDITIVE,
+
+    /**
+     * Transformée de Fourier inverse et addition avec recouvrement : coût presque indépendant du nombre de lignes.
+     */
+    FFT;
+
+    /**
+     * Crée le moteur de synthèse correspondant.
+     *
+     * @param frequencyTable  Fréquence (en Hz) de chaque ligne.
+     * @param samplesPerFrame Nombre d'échantillons produits par colonne.
+     * @param sampleRate      Taux d'échantillonnage audio (en Hz).
+     * @return Le moteur de synthèse.
+     */
+    public MoteurSynthese creer(double[] frequencyTable, int samplesPerFrame, int sampleRate) {
+        return switch (this) {
+            case ADDITIVE -> new SyntheseAdditive(frequencyTable, samplesPerFrame, sampleRate);
+            case FFT -> new SyntheseFFT(frequencyTable, samplesPerFrame, sampleRate);
+        };
+    }
+}
@@ -3,6 +3,8 @@ module arthurkeusch.taslesontaslimage {
     requires javafx.fxml;
     requires opencv;
     requires java.desktop;
+    requires jdk.jfr;
+    requires static jdk.incubator.vector;
 
 
     opens arthurkeusch.taslesontaslimage to javafx.fxml;
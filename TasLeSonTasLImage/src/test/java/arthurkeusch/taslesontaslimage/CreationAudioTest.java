@@ -0,0 +1,91 @@
+package arthurkeusch.taslesontaslimage;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioFormat;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Vérifie que {@link CreationAudio} transmet le son au flux audio colonne par colonne, sans attendre
+ * que toute l'image soit calculée.
+ * <p>
+ * Le flux n'est pas ouvert : les échantillons restent dans son tampon circulaire, dont le remplissage
+ * est lu par {@link FluxAudio#getLatenceMillis()}.
+ */
+class CreationAudioTest {
+
+    private static final int NUM_ROWS = 64;
+    private static final int NUM_COLS = 64;
+    private static final double MIN_FREQUENCY = 200;
+    private static final double MAX_FREQUENCY = 3000;
+    private static final int SAMPLE_RATE = 44100;
+    private static final int SAMPLES_PER_FRAME = SAMPLE_RATE / NUM_ROWS;
+
+    @Test
+    void premiersEchantillonsEcritsAvantLaDerniereColonneAdditive() {
+        verifierDiffusion(TypeSynthese.ADDITIVE);
+    }
+
+    @Test
+    void premiersEchantillonsEcritsAvantLaDerniereColonneFFT() {
+        verifierDiffusion(TypeSynthese.FFT);
+    }
+
+    private static void verifierDiffusion(TypeSynthese type) {
+        CreationAudio audio = new CreationAudio(NUM_ROWS, NUM_COLS, MIN_FREQUENCY, MAX_FREQUENCY, SAMPLE_RATE, type);
+        // Le tampon contient toute l'image : l'écriture ne bloque jamais, même sans ligne ouverte.
+        FluxAudio flux = new FluxAudio(new AudioFormat(SAMPLE_RATE, 8, 1, true, true), NUM_COLS * SAMPLES_PER_FRAME);
+        MoteurSynthese moteur = type.creer(tableDesFrequences(), SAMPLES_PER_FRAME, SAMPLE_RATE);
+        double[] latences = new double[NUM_COLS];
+
+        MoteurSynthese espion = new MoteurSynthese() {
+            @Override
+            public void rendreColonnes(ImageMatrice image, int colDebut, int colFin, double[] sortie, int offset) {
+                moteur.rendreColonnes(image, colDebut, colFin, sortie, offset);
+            }
+
+            @Override
+            public RenduProgressif rendreProgressivement(ImageMatrice image) {
+                RenduProgressif rendu = moteur.rendreProgressivement(image);
+                int[] colonne = {0};
+                return (sortie, offset) -> {
+                    latences[colonne[0]++] = flux.getLatenceMillis();
+                    rendu.colonneSuivante(sortie, offset);
+                };
+            }
+        };
+
+        assertTrue(audio.diffuser(imageAleatoire(), espion, flux));
+
+        double dureeColonne = 1000.0 * SAMPLES_PER_FRAME / SAMPLE_RATE;
+        assertEquals(0, latences[0], 1e-9, "Rien n'est écrit avant la première colonne");
+        for (int col = 1; col < NUM_COLS; col++) {
+            assertEquals(col * dureeColonne, latences[col], 1e-6, "Colonnes écrites avant la colonne " + col);
+        }
+        assertEquals(NUM_COLS * dureeColonne, flux.getLatenceMillis(), 1e-6);
+    }
+
+    private static double[] tableDesFrequences() {
+        double[] frequencies = new double[NUM_ROWS];
+        for (int row = 0; row < NUM_ROWS; row++) {
+            frequencies[row] = MAX_FREQUENCY - (row * (MAX_FREQUENCY - MIN_FREQUENCY) / (NUM_ROWS - 1));
+        }
+        return frequencies;
+    }
+
+    private static ImageMatrice imageAleatoire() {
+        Random random = new Random(4);
+        ImageMatrice image = new ImageMatrice(NUM_ROWS, NUM_COLS);
+        for (int row = 0; row < NUM_ROWS; row++) {
+            for (int col = 0; col < NUM_COLS; col++) {
+                if (random.nextDouble() < 0.3) {
+                    image.set(row, col, 1 + random.nextInt(TraitementImage.NIVEAUX_GRIS - 1));
+                }
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,84 @@
+package arthurkeusch.taslesontaslimage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Vérifie que les calculs vectorisés de {@link NoyauVectoriel} donnent exactement, au bit près,
+ * les mêmes échantillons que la version scalaire de {@link NoyauSynthese}.
+ * Ces tests ne s'exécutent que si le module {@code jdk.incubator.vector} est chargé.
+ */
+class NoyauVectorielTest {
+
+    /**
+     * Longueurs testées : vides, plus courtes qu'un bloc, multiples ou non de la largeur d'un bloc.
+     */
+    private static final int[] LONGUEURS = {0, 1, 3, 7, 8, 9, 16, 23, 689, 1000};
+
+    private static void verifierModule() {
+        assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(),
+                "Le module jdk.incubator.vector n'est pas chargé (--add-modules jdk.incubator.vector).");
+    }
+
+    @Test
+    void sinusoideIdentiqueAuScalaire() {
+        verifierModule();
+        Random random = new Random(8);
+        for (int longueur : LONGUEURS) {
+            for (int essai = 0; essai < 20; essai++) {
+                double omega = 2.0 * Math.PI * (20 + random.nextDouble() * 20000) / 44100;
+                double[] cosVoies = new double[NoyauSynthese.LARGEUR_BLOC];
+                double[] sinVoies = new double[NoyauSynthese.LARGEUR_BLOC];
+                for (int j = 0; j < NoyauSynthese.LARGEUR_BLOC; j++) {
+                    cosVoies[j] = Math.cos(j * omega);
+                    sinVoies[j] = Math.sin(j * omega);
+                }
+                double cosBloc = Math.cos(NoyauSynthese.LARGEUR_BLOC * omega);
+                double sinBloc = Math.sin(NoyauSynthese.LARGEUR_BLOC * omega);
+                double amplitude = random.nextInt(16);
+                double phase = omega * random.nextInt(64 * 689);
+                int offset = random.nextInt(5);
+
+                double[] scalaire = new double[offset + longueur + 3];
+                for (int i = 0; i < scalaire.length; i++) {
+                    scalaire[i] = random.nextGaussian();
+                }
+                double[] vectoriel = scalaire.clone();
+
+                NoyauSynthese.ajouterSinusoideScalaire(scalaire, offset, longueur, amplitude,
+                        phase, cosVoies, sinVoies, cosBloc, sinBloc);
+                NoyauVectoriel.ajouterSinusoide(vectoriel, offset, longueur, amplitude,
+                        phase, cosVoies, sinVoies, cosBloc, sinBloc);
+                assertArrayEquals(scalaire, vectoriel, "Longueur " + longueur + ", essai " + essai);
+            }
+        }
+    }
+
+    @Test
+    void conversionEn8BitsIdentiqueAuScalaire() {
+        verifierModule();
+        Random random = new Random(16);
+        for (int longueur : LONGUEURS) {
+            int offset = random.nextInt(5);
+            double[] source = new double[offset + longueur];
+            for (int i = 0; i < source.length; i++) {
+                source[i] = 4 * random.nextDouble() - 2;
+            }
+            double[] particuliers = {1.0, -1.0, 0.0, -0.0, 1.0 / 127, -1.0 / 127,
+                    Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+            for (int i = 0; i < Math.min(longueur, particuliers.length); i++) {
+                source[offset + i] = particuliers[i];
+            }
+
+            byte[] scalaire = new byte[longueur + 2];
+            byte[] vectoriel = new byte[longueur + 2];
+            NoyauSynthese.convertirEn8BitsScalaire(source, offset, scalaire, 1, longueur);
+            NoyauVectoriel.convertirEn8Bits(source, offset, vectoriel, 1, longueur);
+            assertArrayEquals(scalaire, vectoriel, "Longueur " + longueur);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package arthurkeusch.taslesontaslimage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compare les oscillateurs à rotation de phase de {@link SyntheseAdditive} avec l'ancienne table de sinusoïdes,
+ * où chaque échantillon valait {@code sin(2 * PI * f * t)} pour chaque ligne.
+ */
+class SyntheseAdditiveTest {
+
+    private static final int NUM_ROWS = 64;
+    private static final int NUM_COLS = 64;
+    private static final double MIN_FREQUENCY = 200;
+    private static final double MAX_FREQUENCY = 3000;
+    private static final int SAMPLE_RATE = 44100;
+    private static final int SAMPLES_PER_FRAME = SAMPLE_RATE / NUM_ROWS;
+
+    /**
+     * Écart maximal toléré sur un échantillon non limité, dont la valeur peut atteindre
+     * {@code NUM_ROWS * 15} : les erreurs d'arrondi des rotations restent plusieurs ordres de grandeur en dessous.
+     */
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    void colonnesCreusesIdentiquesALaTable() {
+        comparer(imageAleatoire(0.1, 1));
+    }
+
+    @Test
+    void colonnesDensesIdentiquesALaTable() {
+        comparer(imageAleatoire(0.9, 2));
+    }
+
+    @Test
+    void sonSur8BitsIdentiqueALaTable() {
+        ImageMatrice image = imageAleatoire(0.02, 3);
+        for (int row = 0; row < NUM_ROWS; row++) {
+            for (int col = 0; col < NUM_COLS; col++) {
+                image.set(row, col, image.get(row, col) == 0 ? 0 : 1);
+            }
+        }
+        byte[] pcm = new CreationAudio(NUM_ROWS, NUM_COLS, MIN_FREQUENCY, MAX_FREQUENCY, SAMPLE_RATE).genererSon(image);
+        double[][] table = tableDesSinus();
+
+        assertEquals(NUM_COLS * SAMPLES_PER_FRAME, pcm.length);
+        for (int i = 0; i < pcm.length; i++) {
+            double valeur = 0;
+            for (int row = 0; row < NUM_ROWS; row++) {
+                valeur += image.get(row, i / SAMPLES_PER_FRAME) * table[row][i];
+            }
+            valeur = Math.max(-1.0, Math.min(1.0, valeur));
+            // La troncature peut basculer d'un pas lorsque la valeur tombe sur une frontière.
+            assertTrue(Math.abs((byte) (valeur * 127) - pcm[i]) <= 1, "Échantillon " + i);
+        }
+    }
+
+    /**
+     * Vérifie chaque échantillon de l'image contre la somme des lignes lue dans l'ancienne table.
+     *
+     * @param image L'image à sonoriser.
+     */
+    private static void comparer(ImageMatrice image) {
+        SyntheseAdditive synthese = new SyntheseAdditive(tableDesFrequences(), SAMPLES_PER_FRAME, SAMPLE_RATE);
+        double[] samples = new double[NUM_COLS * SAMPLES_PER_FRAME];
+        synthese.rendreColonnes(image, 0, NUM_COLS, samples, 0);
+        double[][] table = tableDesSinus();
+
+        for (int i = 0; i < samples.length; i++) {
+            double attendu = 0;
+            for (int row = 0; row < NUM_ROWS; row++) {
+                attendu += image.get(row, i / SAMPLES_PER_FRAME) * table[row][i];
+            }
+            assertEquals(attendu, samples[i], TOLERANCE, "Échantillon " + i);
+        }
+    }
+
+    /**
+     * Fréquences de chaque ligne, calculées comme dans {@link CreationAudio#initFrequencyTable(double, double)}.
+     */
+    private static double[] tableDesFrequences() {
+        double[] frequencies = new double[NUM_ROWS];
+        for (int row = 0; row < NUM_ROWS; row++) {
+            frequencies[row] = MAX_FREQUENCY - (row * (MAX_FREQUENCY - MIN_FREQUENCY) / (NUM_ROWS - 1));
+        }
+        return frequencies;
+    }
+
+    /**
+     * Ancienne table de sinusoïdes, pré-calculée pour chaque ligne et chaque échantillon de l'image.
+     */
+    private static double[][] tableDesSinus() {
+        double[] frequencies = tableDesFrequences();
+        double[][] table = new double[NUM_ROWS][NUM_COLS * SAMPLES_PER_FRAME];
+        for (int row = 0; row < NUM_ROWS; row++) {
+            for (int i = 0; i < table[row].length; i++) {
+                double time = (double) i / SAMPLE_RATE;
+                table[row][i] = Math.sin(2.0 * Math.PI * frequencies[row] * time);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Crée une image à 16 niveaux dont une proportion donnée de pixels est non nulle.
+     *
+     * @param densite Proportion de pixels non nuls.
+     * @param graine  Graine du générateur aléatoire.
+     */
+    private static ImageMatrice imageAleatoire(double densite, long graine) {
+        Random random = new Random(graine);
+        ImageMatrice image = new ImageMatrice(NUM_ROWS, NUM_COLS);
+        for (int row = 0; row < NUM_ROWS; row++) {
+            for (int col = 0; col < NUM_COLS; col++) {
+                if (random.nextDouble() < densite) {
+                    image.set(row, col, 1 + random.nextInt(TraitementImage.NIVEAUX_GRIS - 1));
+                }
+            }
+        }
+        return image;
+    }
+}
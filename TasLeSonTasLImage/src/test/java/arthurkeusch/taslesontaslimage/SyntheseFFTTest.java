@@ -0,0 +1,192 @@
+package arthurkeusch.taslesontaslimage;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compare la synthèse par transformée de Fourier inverse à la synthèse additive sur les images fournies.
+ * <p>
+ * Les deux sons ne peuvent pas être identiques : la synthèse FFT arrondit chaque fréquence au canal le plus
+ * proche et fond les colonnes voisines par recouvrement. L'écart est mesuré par l'erreur quadratique moyenne
+ * relative, {@code ||fft - additive|| / ||additive||}, sur toute l'image.
+ */
+class SyntheseFFTTest {
+
+    private static final int NUM_ROWS = 64;
+    private static final int NUM_COLS = 64;
+    private static final double MIN_FREQUENCY = 200;
+    private static final double MAX_FREQUENCY = 3000;
+    private static final int SAMPLE_RATE = 44100;
+    private static final int SAMPLES_PER_FRAME = SAMPLE_RATE / NUM_ROWS;
+
+    /**
+     * Erreur relative maximale tolérée. Sur les images fournies, elle vaut entre 0,06 et 0,34 ;
+     * la plus forte correspond à l'image aux transitions les plus nombreuses d'une colonne à l'autre.
+     * Agrandies à 256 ou 1024 lignes, elles restent sous 0,32.
+     */
+    private static final double ERREUR_RELATIVE_MAX = 0.4;
+
+    /**
+     * Erreur relative maximale tolérée sur une image dont chaque ligne garde la même amplitude sur toutes
+     * les colonnes : seul l'arrondi des fréquences aux canaux intervient. Elle vaut 0,006 à 256 lignes et
+     * moins de 0,001 à 1024 lignes ; avec une transformée limitée à la longueur d'une trame, plusieurs lignes
+     * partageaient le même canal et elle dépassait 0,06.
+     */
+    private static final double ERREUR_RELATIVE_MAX_LIGNES_CONSTANTES = 0.02;
+
+    @Test
+    void imagesFourniesProchesDeLaSyntheseAdditive() {
+        comparerImagesFournies(NUM_ROWS);
+    }
+
+    @Test
+    void imagesFourniesProchesDeLaSyntheseAdditiveSur256Lignes() {
+        comparerImagesFournies(256);
+    }
+
+    @Test
+    void imagesFourniesProchesDeLaSyntheseAdditiveSur1024Lignes() {
+        comparerImagesFournies(1024);
+    }
+
+    @Test
+    void lignesConstantesProchesDeLaSyntheseAdditiveSur256Lignes() {
+        comparerLignesConstantes(256);
+    }
+
+    @Test
+    void lignesConstantesProchesDeLaSyntheseAdditiveSur1024Lignes() {
+        comparerLignesConstantes(1024);
+    }
+
+    @Test
+    void unCanalParLigne() {
+        assertEquals(2048, SyntheseFFT.tailleFFT(tableDesFrequences(NUM_ROWS), 2 * SAMPLES_PER_FRAME, SAMPLE_RATE));
+        assertEquals(4096, SyntheseFFT.tailleFFT(tableDesFrequences(256), 2 * (SAMPLE_RATE / 256), SAMPLE_RATE));
+        assertEquals(16384, SyntheseFFT.tailleFFT(tableDesFrequences(1024), 2 * (SAMPLE_RATE / 1024), SAMPLE_RATE));
+    }
+
+    @Test
+    void decoupageEnBlocsSansEffet() {
+        double[] frequencies = tableDesFrequences();
+        MoteurSynthese fft = TypeSynthese.FFT.creer(frequencies, SAMPLES_PER_FRAME, SAMPLE_RATE);
+        ImageMatrice matrice = new TraitementImage().traitement(new File("src/main/images/R2D2.png").getAbsolutePath());
+
+        double[] entier = new double[NUM_COLS * SAMPLES_PER_FRAME];
+        fft.rendreColonnes(matrice, 0, NUM_COLS, entier, 0);
+        double[] parBlocs = new double[NUM_COLS * SAMPLES_PER_FRAME];
+        for (int col = 0; col < NUM_COLS; col += 5) {
+            int fin = Math.min(NUM_COLS, col + 5);
+            fft.rendreColonnes(matrice, col, fin, parBlocs, col * SAMPLES_PER_FRAME);
+        }
+        for (int i = 0; i < entier.length; i++) {
+            assertTrue(Math.abs(entier[i] - parBlocs[i]) <= 1e-9, "Échantillon " + i);
+        }
+    }
+
+    @Test
+    void renduProgressifIdentiqueAuRenduComplet() {
+        double[] frequencies = tableDesFrequences();
+        MoteurSynthese fft = TypeSynthese.FFT.creer(frequencies, SAMPLES_PER_FRAME, SAMPLE_RATE);
+        ImageMatrice matrice = new TraitementImage().traitement(new File("src/main/images/R2D2.png").getAbsolutePath());
+
+        double[] entier = new double[NUM_COLS * SAMPLES_PER_FRAME];
+        fft.rendreColonnes(matrice, 0, NUM_COLS, entier, 0);
+        double[] progressif = new double[NUM_COLS * SAMPLES_PER_FRAME];
+        MoteurSynthese.RenduProgressif rendu = fft.rendreProgressivement(matrice);
+        for (int col = 0; col < NUM_COLS; col++) {
+            rendu.colonneSuivante(progressif, col * SAMPLES_PER_FRAME);
+        }
+        assertArrayEquals(entier, progressif);
+    }
+
+    /**
+     * Compare les deux synthèses sur les images fournies, agrandies à {@code numRows} lignes en répétant
+     * chacune de leurs lignes.
+     */
+    private static void comparerImagesFournies(int numRows) {
+        File[] images = new File("src/main/images").listFiles((dossier, nom) -> nom.endsWith(".png") || nom.endsWith(".jpg"));
+        assertNotNull(images);
+        Arrays.sort(images);
+
+        TraitementImage traitementImage = new TraitementImage();
+        for (File image : images) {
+            ImageMatrice matrice = traitementImage.traitement(image.getAbsolutePath());
+            ImageMatrice agrandie = new ImageMatrice(numRows, NUM_COLS);
+            for (int row = 0; row < numRows; row++) {
+                for (int col = 0; col < NUM_COLS; col++) {
+                    agrandie.set(row, col, matrice.get(row * matrice.getHauteur() / numRows, col));
+                }
+            }
+            double erreurRelative = erreurRelative(agrandie);
+            assertTrue(erreurRelative <= ERREUR_RELATIVE_MAX, image.getName() + " sur " + numRows
+                    + " lignes : erreur relative de " + erreurRelative + " > " + ERREUR_RELATIVE_MAX);
+        }
+    }
+
+    /**
+     * Compare les deux synthèses sur une image aléatoire dont chaque ligne garde la même amplitude
+     * sur toutes les colonnes.
+     */
+    private static void comparerLignesConstantes(int numRows) {
+        Random random = new Random(5);
+        ImageMatrice image = new ImageMatrice(numRows, NUM_COLS);
+        for (int row = 0; row < numRows; row++) {
+            int amplitude = random.nextDouble() < 0.3 ? 1 + random.nextInt(TraitementImage.NIVEAUX_GRIS - 1) : 0;
+            for (int col = 0; col < NUM_COLS; col++) {
+                image.set(row, col, amplitude);
+            }
+        }
+        double erreurRelative = erreurRelative(image);
+        assertTrue(erreurRelative <= ERREUR_RELATIVE_MAX_LIGNES_CONSTANTES, numRows + " lignes : erreur relative de "
+                + erreurRelative + " > " + ERREUR_RELATIVE_MAX_LIGNES_CONSTANTES);
+    }
+
+    /**
+     * Erreur quadratique moyenne relative de la synthèse FFT par rapport à la synthèse additive.
+     */
+    private static double erreurRelative(ImageMatrice image) {
+        int numRows = image.getHauteur();
+        int samplesPerFrame = SAMPLE_RATE / numRows;
+        double[] frequencies = tableDesFrequences(numRows);
+        MoteurSynthese additive = TypeSynthese.ADDITIVE.creer(frequencies, samplesPerFrame, SAMPLE_RATE);
+        MoteurSynthese fft = TypeSynthese.FFT.creer(frequencies, samplesPerFrame, SAMPLE_RATE);
+
+        double[] attendu = new double[NUM_COLS * samplesPerFrame];
+        double[] obtenu = new double[NUM_COLS * samplesPerFrame];
+        additive.rendreColonnes(image, 0, NUM_COLS, attendu, 0);
+        fft.rendreColonnes(image, 0, NUM_COLS, obtenu, 0);
+
+        double energie = 0;
+        double erreur = 0;
+        for (int i = 0; i < attendu.length; i++) {
+            energie += attendu[i] * attendu[i];
+            erreur += (obtenu[i] - attendu[i]) * (obtenu[i] - attendu[i]);
+        }
+        assertTrue(energie > 0, "Image silencieuse");
+        return Math.sqrt(erreur / energie);
+    }
+
+    private static double[] tableDesFrequences() {
+        return tableDesFrequences(NUM_ROWS);
+    }
+
+    /**
+     * Fréquences de chaque ligne, calculées comme dans {@link CreationAudio#initFrequencyTable(double, double)}.
+     */
+    private static double[] tableDesFrequences(int numRows) {
+        double[] frequencies = new double[numRows];
+        for (int row = 0; row < numRows; row++) {
+            frequencies[row] = MAX_FREQUENCY - (row * (MAX_FREQUENCY - MIN_FREQUENCY) / (numRows - 1));
+        }
+        return frequencies;
+    }
+}
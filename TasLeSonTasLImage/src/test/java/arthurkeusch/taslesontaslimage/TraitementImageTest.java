@@ -0,0 +1,66 @@
+package arthurkeusch.taslesontaslimage;
+
+import org.junit.jupiter.api.Test;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Vérifie que le décodage à résolution réduite donne la même matrice compressée, à un niveau de gris près,
+ * que le décodage en pleine résolution suivi de {@link org.opencv.imgproc.Imgproc#INTER_AREA}.
+ */
+class TraitementImageTest {
+
+    /**
+     * Dossier des images fournies avec l'application.
+     */
+    private static final File DOSSIER_IMAGES = new File("src/main/images");
+
+    @Test
+    void decodageReduitProcheDeLaPleineResolution() {
+        File[] images = DOSSIER_IMAGES.listFiles((dossier, nom) -> nom.endsWith(".png") || nom.endsWith(".jpg"));
+        assertNotNull(images, "Dossier introuvable : " + DOSSIER_IMAGES.getAbsolutePath());
+        Arrays.sort(images);
+
+        TraitementImage traitementImage = new TraitementImage();
+        int imagesReduites = 0;
+        for (File image : images) {
+            String chemin = image.getAbsolutePath();
+            ImageMatrice reference = TraitementImage.compresserEn64x64(TraitementImage.convertirEnNiveauxDeGris(chemin));
+            ImageMatrice reduite = traitementImage.traitement(chemin);
+
+            assertEquals(reference.getHauteur(), reduite.getHauteur(), image.getName());
+            assertEquals(reference.getLargeur(), reduite.getLargeur(), image.getName());
+            for (int row = 0; row < reference.getHauteur(); row++) {
+                for (int col = 0; col < reference.getLargeur(); col++) {
+                    int ecart = Math.abs(reference.get(row, col) - reduite.get(row, col));
+                    assertTrue(ecart <= 1, image.getName() + " (" + row + ", " + col + ") : écart de " + ecart
+                            + " niveaux de gris sur " + TraitementImage.NIVEAUX_GRIS);
+                }
+            }
+
+            ImageMatrice pleine = TraitementImage.convertirEnNiveauxDeGris(chemin);
+            int mode = TraitementImage.choisirModeLecture(pleine.getLargeur(), pleine.getHauteur(),
+                    TraitementImage.TAILLE_COMPRESSEE);
+            if (mode != Imgcodecs.IMREAD_GRAYSCALE) {
+                imagesReduites++;
+            }
+        }
+        assertTrue(imagesReduites > 0, "Aucune image fournie n'est décodée à résolution réduite.");
+    }
+
+    @Test
+    void choixDuModeDeLecture() {
+        int cible = TraitementImage.TAILLE_COMPRESSEE;
+        assertEquals(Imgcodecs.IMREAD_GRAYSCALE, TraitementImage.choisirModeLecture(-1, -1, cible));
+        assertEquals(Imgcodecs.IMREAD_GRAYSCALE, TraitementImage.choisirModeLecture(511, 4000, cible));
+        assertEquals(Imgcodecs.IMREAD_REDUCED_GRAYSCALE_2, TraitementImage.choisirModeLecture(512, 512, cible));
+        assertEquals(Imgcodecs.IMREAD_REDUCED_GRAYSCALE_4, TraitementImage.choisirModeLecture(1446, 1446, cible));
+        assertEquals(Imgcodecs.IMREAD_REDUCED_GRAYSCALE_8, TraitementImage.choisirModeLecture(2048, 4096, cible));
+    }
+}